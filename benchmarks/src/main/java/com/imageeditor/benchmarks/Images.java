@@ -0,0 +1,92 @@
+package com.imageeditor.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.SplittableRandom;
+import javax.imageio.ImageIO;
+
+/**
+ * Deterministic benchmark inputs.
+ */
+final class Images {
+
+    /** Classpath location of the sample photo shipped with image-editor. */
+    static final String SAMPLE_PHOTO = "/taylor.jpg";
+
+    private Images() {
+    }
+
+    /**
+     * Parses a {@code BufferedImage} type name without the {@code TYPE_} prefix.
+     *
+     * @param name one of 3BYTE_BGR, INT_RGB, INT_ARGB or BYTE_GRAY
+     * @return the matching BufferedImage type constant
+     */
+    static int type(String name) {
+        switch (name) {
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "INT_RGB":
+                return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            case "BYTE_GRAY":
+                return BufferedImage.TYPE_BYTE_GRAY;
+            default:
+                throw new IllegalArgumentException("Unknown image type: " + name);
+        }
+    }
+
+    /**
+     * Creates a synthetic image: smooth gradients plus seeded noise, so the content is the same on
+     * every run and neither compresses to a constant nor is pure noise.
+     *
+     * @param size dimensions as WIDTHxHEIGHT, e.g. 1920x1080
+     * @param type BufferedImage type constant
+     * @param seed noise seed
+     * @return the generated image
+     */
+    static BufferedImage synthetic(String size, int type, long seed) {
+        int separator = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, separator));
+        int height = Integer.parseInt(size.substring(separator + 1));
+        BufferedImage image = new BufferedImage(width, height, type);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(32);
+                int red = (x * 255 / width + noise) & 0xFF;
+                int green = (y * 255 / height + noise) & 0xFF;
+                int blue = ((x + y) & 0xFF) ^ noise;
+                int alpha = 0x80 + random.nextInt(0x80);
+                row[x] = alpha << 24 | red << 16 | green << 8 | blue;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * Loads the sample photo and converts it to the requested type.
+     *
+     * @param type BufferedImage type constant
+     * @return the photo in the requested type
+     */
+    static BufferedImage samplePhoto(int type) {
+        BufferedImage photo;
+        try (InputStream in = Images.class.getResourceAsStream(SAMPLE_PHOTO)) {
+            if (in == null) {
+                throw new IllegalStateException(SAMPLE_PHOTO + " is not on the classpath");
+            }
+            photo = ImageIO.read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        BufferedImage converted = new BufferedImage(photo.getWidth(), photo.getHeight(), type);
+        converted.createGraphics().drawImage(photo, 0, 0, null);
+        return converted;
+    }
+}
@@ -0,0 +1,123 @@
+package com.imageeditor.benchmarks;
+
+import com.imageeditor.ImageEditor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@link ImageEditor} operation. Subclasses supply the input image; the image type and
+ * thread count are parameters shared by all of them.
+ * <p>
+ * A thread count of 1 runs on the benchmark thread exactly like the serial overloads, anything
+ * higher runs on a dedicated {@link ForkJoinPool} of that size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g", "--add-modules", "jdk.incubator.vector"})
+public abstract class OperationBenchmark {
+
+    /** Brightness change used by {@link #adjustBrightness()}. */
+    static final int BRIGHTNESS = 40;
+
+    /** Block size used by {@link #applyBlur()}. */
+    static final int BLOCK_SIZE = 15;
+
+    @Param({"3BYTE_BGR", "INT_RGB", "INT_ARGB", "BYTE_GRAY"})
+    public String type;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    BufferedImage image;
+    ForkJoinPool pool;
+
+    /**
+     * Creates the input image for one trial.
+     *
+     * @param imageType BufferedImage type constant
+     * @return the input image
+     */
+    abstract BufferedImage createImage(int imageType);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = createImage(Images.type(type));
+        pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public BufferedImage convertToGrayscale() {
+        return ImageEditor.convertToGrayscale(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage adjustBrightness() {
+        return ImageEditor.adjustBrightness(image, BRIGHTNESS, pool);
+    }
+
+    @Benchmark
+    public BufferedImage rotateRight() {
+        return ImageEditor.rotateRight(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage rotateLeft() {
+        return ImageEditor.rotateLeft(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage rotate180() {
+        return ImageEditor.rotate180(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage flipHorizontal() {
+        return ImageEditor.flipHorizontal(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage flipVertical() {
+        return ImageEditor.flipVertical(image, pool);
+    }
+
+    /** Flips the shared input back and forth; the cost does not depend on its orientation. */
+    @Benchmark
+    public BufferedImage flipHorizontalInPlace() {
+        return ImageEditor.flipHorizontalInPlace(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage flipVerticalInPlace() {
+        return ImageEditor.flipVerticalInPlace(image, pool);
+    }
+
+    @Benchmark
+    public BufferedImage applyBlur() {
+        return ImageEditor.applyBlur(image, BLOCK_SIZE, pool);
+    }
+}
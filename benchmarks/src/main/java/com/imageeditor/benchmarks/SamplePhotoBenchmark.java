@@ -0,0 +1,14 @@
+package com.imageeditor.benchmarks;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs every operation on the sample photo shipped with the application, {@code taylor.jpg}.
+ */
+public class SamplePhotoBenchmark extends OperationBenchmark {
+
+    @Override
+    BufferedImage createImage(int imageType) {
+        return Images.samplePhoto(imageType);
+    }
+}
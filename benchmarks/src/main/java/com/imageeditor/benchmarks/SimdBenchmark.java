@@ -0,0 +1,62 @@
+package com.imageeditor.benchmarks;
+
+import com.imageeditor.ImageEditor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and SIMD brightness kernels single-threaded at 1, 12 and 48 MP. The backend
+ * is chosen per fork with the {@code imageeditor.simd} system property, so the two methods differ
+ * only in that flag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SimdBenchmark {
+
+    private static final String HEAP = "-Xmx3g";
+    private static final String ADD_MODULES = "--add-modules";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String SCALAR = "-Dimageeditor.simd=false";
+    private static final String VECTOR = "-Dimageeditor.simd=true";
+
+    @Param({"1000x1000", "4000x3000", "8000x6000"})
+    public String size;
+
+    @Param({"3BYTE_BGR", "INT_RGB"})
+    public String type;
+
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = Images.synthetic(size, Images.type(type), 42);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {HEAP, ADD_MODULES, VECTOR_MODULE, SCALAR})
+    public BufferedImage brightnessScalar() {
+        return ImageEditor.adjustBrightness(image, OperationBenchmark.BRIGHTNESS);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {HEAP, ADD_MODULES, VECTOR_MODULE, VECTOR})
+    public BufferedImage brightnessVector() {
+        return ImageEditor.adjustBrightness(image, OperationBenchmark.BRIGHTNESS);
+    }
+}
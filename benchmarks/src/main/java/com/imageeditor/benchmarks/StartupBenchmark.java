@@ -0,0 +1,119 @@
+package com.imageeditor.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures how long a fresh JVM takes to process the sample photo from the command line, with and
+ * without the application class data sharing archive. Each run is a separate process; the time is
+ * from starting it to the first byte it writes to standard output, which the editor only writes
+ * once the result is saved. Configurations take turns, so drift on the machine affects them alike.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.imageeditor.benchmarks.StartupBenchmark \
+ *     target/image-editor-1.0.0.jar target/image-editor.jsa 30
+ * </pre>
+ * JMH is not used, since it measures code inside a JVM it has already started.
+ */
+public final class StartupBenchmark {
+
+    private static final int DEFAULT_RUNS = 20;
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Runs the comparison and prints the median and best time of each configuration.
+     *
+     * @param args the editor jar, the archive made from it, and optionally the runs per configuration
+     * @throws IOException if a process cannot be started
+     * @throws InterruptedException if interrupted while waiting for one
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: StartupBenchmark JAR ARCHIVE [RUNS]");
+            System.exit(1);
+        }
+        String jar = args[0];
+        String archive = args[1];
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+        if (!Files.isRegularFile(Paths.get(archive))) {
+            System.err.println("Error: File not found - " + archive);
+            System.exit(1);
+        }
+        List<String[]> configurations = List.of(
+                new String[] {"JDK archive only"},
+                new String[] {"No sharing", "-Xshare:off"},
+                new String[] {"AppCDS", "-XX:SharedArchiveFile=" + archive},
+                new String[] {"AppCDS, C1 only", "-XX:SharedArchiveFile=" + archive, "-XX:TieredStopAtLevel=1"});
+
+        Path dir = Files.createTempDirectory("startup-benchmark");
+        Path sample = dir.resolve("sample.jpg");
+        try (InputStream in = StartupBenchmark.class.getResourceAsStream(Images.SAMPLE_PHOTO)) {
+            if (in == null) {
+                throw new IOException(Images.SAMPLE_PHOTO + " is not on the classpath");
+            }
+            Files.copy(in, sample, StandardCopyOption.REPLACE_EXISTING);
+        }
+        long[][] firstOutput = new long[configurations.size()][runs];
+        long[][] exit = new long[configurations.size()][runs];
+        // One unmeasured round warms the page cache for the JDK, the jar and the archive.
+        for (int run = -1; run < runs; run++) {
+            for (int c = 0; c < configurations.size(); c++) {
+                String[] configuration = configurations.get(c);
+                List<String> command = new ArrayList<>();
+                command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+                command.addAll(Arrays.asList(configuration).subList(1, configuration.length));
+                command.addAll(List.of("-jar", jar, "--in", sample.toString(), "--op", "grayscale",
+                        "--out", dir.resolve("out.jpg").toString()));
+                long[] times = time(command);
+                if (run >= 0) {
+                    firstOutput[c][run] = times[0];
+                    exit[c][run] = times[1];
+                }
+            }
+        }
+        Files.deleteIfExists(dir.resolve("out.jpg"));
+        Files.delete(sample);
+        Files.delete(dir);
+
+        System.out.printf("%-18s %22s %22s%n", "", "first output ms", "exit ms");
+        System.out.printf("%-18s %11s %10s %11s %10s%n", "", "median", "best", "median", "best");
+        for (int c = 0; c < configurations.size(); c++) {
+            Arrays.sort(firstOutput[c]);
+            Arrays.sort(exit[c]);
+            System.out.printf(Locale.ROOT, "%-18s %11.1f %10.1f %11.1f %10.1f%n", configurations.get(c)[0],
+                    firstOutput[c][runs / 2] / 1e6, firstOutput[c][0] / 1e6, exit[c][runs / 2] / 1e6,
+                    exit[c][0] / 1e6);
+        }
+    }
+
+    /** Runs a command, returning the nanoseconds to its first byte of output and to its exit. */
+    private static long[] time(List<String> command) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long first;
+        try (InputStream out = process.getInputStream()) {
+            if (out.read() < 0) {
+                throw new IOException("No output from " + String.join(" ", command));
+            }
+            first = System.nanoTime() - start;
+            out.transferTo(OutputStream.nullOutputStream());
+        }
+        int status = process.waitFor();
+        long end = System.nanoTime() - start;
+        if (status != 0) {
+            throw new IOException("Exit status " + status + " from " + String.join(" ", command));
+        }
+        return new long[] {first, end};
+    }
+}
@@ -0,0 +1,19 @@
+package com.imageeditor.benchmarks;
+
+import org.openjdk.jmh.annotations.Param;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Runs every operation on generated images from 0.3 MP (VGA) to 48 MP.
+ */
+public class SyntheticImageBenchmark extends OperationBenchmark {
+
+    @Param({"640x480", "1920x1080", "4000x3000", "8000x6000"})
+    public String size;
+
+    @Override
+    BufferedImage createImage(int imageType) {
+        return Images.synthetic(size, imageType, 42);
+    }
+}
@@ -0,0 +1,250 @@
+package com.imageeditor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admits jobs only while their pixel buffers fit a global memory budget.
+ * <p>
+ * Before a job decodes anything, its header is {@linkplain ImageProbe probed} and the peak size of
+ * the buffers its pipeline holds at once is {@linkplain #estimate estimated}: the decoded input, the
+ * previous stage's output and the stage output being written. The job then takes that many bytes
+ * from the budget and gives them back once its result has been encoded. Jobs that do not fit wait
+ * in arrival order, so a large one is not starved by a stream of small ones.
+ * <p>
+ * Without a maximum wait, as in batch and manifest modes, every job eventually runs, and one larger
+ * than the whole budget runs once nothing else is in flight. With one, as in server mode, a job
+ * that waits longer is {@linkplain Rejected rejected} so the client can retry later, and one larger
+ * than the whole budget is rejected at once.
+ */
+final class AdmissionController {
+
+    /** Bytes a decoded or intermediate pixel is assumed to take: an int, the widest layout kernels use. */
+    static final int BYTES_PER_PIXEL = 4;
+
+    /** Thrown when a job cannot be admitted. */
+    static final class Rejected extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Whether the job could be admitted later, once others have finished. */
+        final boolean retryable;
+
+        Rejected(String message, boolean retryable) {
+            super(message);
+            this.retryable = retryable;
+        }
+    }
+
+    /** A job's share of the budget, given back when closed. */
+    final class Permit implements AutoCloseable {
+
+        private final int kilobytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int kilobytes) {
+            this.kilobytes = kilobytes;
+        }
+
+        /** Gives the share back; later calls do nothing. */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                inUse.addAndGet(-kilobytes * 1024L);
+                memory.release(kilobytes);
+            }
+        }
+    }
+
+    private final long budget;
+    private final Duration maxWait;
+    private final int capacity;
+    private final Semaphore memory;
+    private final AtomicLong inUse = new AtomicLong();
+    private final AtomicLong peak = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a controller under which every job eventually runs.
+     *
+     * @param budget bytes that jobs in flight may use, at least 1024
+     */
+    AdmissionController(long budget) {
+        this(budget, null);
+    }
+
+    /**
+     * Creates a controller.
+     *
+     * @param budget bytes that jobs in flight may use, at least 1024
+     * @param maxWait how long a job may wait for room before it is rejected, or null to wait as long as
+     *     it takes
+     */
+    AdmissionController(long budget, Duration maxWait) {
+        if (budget < 1024) {
+            throw new IllegalArgumentException("The memory budget must be at least 1 KB: " + budget);
+        }
+        this.budget = budget;
+        this.maxWait = maxWait;
+        this.capacity = (int) Math.min(Integer.MAX_VALUE, budget / 1024);
+        this.memory = new Semaphore(capacity, true);
+    }
+
+    /**
+     * Reserves room for a job, waiting while the budget is exhausted.
+     *
+     * @param bytes the job's estimated peak memory, as returned by {@link #estimate}
+     * @return the reservation, to be closed when the job's buffers are no longer referenced
+     * @throws Rejected if there is a maximum wait and the job is larger than the budget or did not
+     *     fit in time
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    Permit acquire(long bytes) throws IOException {
+        long kilobytes = (bytes + 1023) / 1024;
+        if (kilobytes > capacity && maxWait != null) {
+            rejected.increment();
+            throw new Rejected(String.format(Locale.ROOT, "Image needs about %.1f MB, more than the %.1f MB budget",
+                    bytes / 1048576.0, budget / 1048576.0), false);
+        }
+        int permits = (int) Math.max(1, Math.min(kilobytes, capacity));
+        waiting.incrementAndGet();
+        try {
+            if (maxWait == null) {
+                memory.acquire(permits);
+            } else if (!memory.tryAcquire(permits, maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                rejected.increment();
+                throw new Rejected("Too many large images in progress, retry later", true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for memory");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        admitted.increment();
+        peak.accumulateAndGet(inUse.addAndGet(permits * 1024L), Math::max);
+        return new Permit(permits);
+    }
+
+    /**
+     * Estimates the most memory a pipeline's pixel buffers take at once on an image of the given
+     * size. A stage that reads through a lazy view of the previous one allocates nothing until the
+     * view is materialized; a run of point operations allocates one output. The decoded input is
+     * counted throughout, since the caller holds it until the pipeline returns.
+     *
+     * @param pipeline the operations to run
+     * @param width the width of the image, from its header
+     * @param height the height of the image, from its header
+     * @param draft whether the input is decoded at the reduced resolution allowed by {@link Subsampling}
+     * @return the estimated peak, in bytes
+     */
+    static long estimate(Pipeline pipeline, int width, int height, boolean draft) {
+        return estimate(pipeline, width, height, BYTES_PER_PIXEL, draft);
+    }
+
+    /**
+     * Estimates the most memory a pipeline's pixel buffers take at once, for an input whose decoded
+     * layout is known, as from an {@link ImageProbe}.
+     *
+     * @param pipeline the operations to run
+     * @param width the width of the image, from its header
+     * @param height the height of the image, from its header
+     * @param inputBytesPerPixel the size of a decoded input pixel
+     * @param draft whether the input is decoded at the reduced resolution allowed by {@link Subsampling}
+     * @return the estimated peak, in bytes
+     */
+    static long estimate(Pipeline pipeline, int width, int height, int inputBytesPerPixel, boolean draft) {
+        List<Operation> operations = pipeline.operations();
+        int factor = draft ? Subsampling.factor(operations) : 1;
+        int expandAfter = factor > 1 ? Subsampling.blurIndex(operations) : -1;
+        long w = (width + factor - 1) / factor;
+        long h = (height + factor - 1) / factor;
+        long input = w * h * inputBytesPerPixel;
+        long previous = 0;
+        long peak = input;
+        boolean view = false;
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            if (operation.kind.category == Operation.Category.GEOMETRIC) {
+                if (operation.kind == Operation.Kind.ROTATE_LEFT || operation.kind == Operation.Kind.ROTATE_RIGHT) {
+                    long swap = w;
+                    w = h;
+                    h = swap;
+                } else if (operation.kind == Operation.Kind.CROP) {
+                    w = Math.min(w, operation.region[2]);
+                    h = Math.min(h, operation.region[3]);
+                }
+                view = true;
+                continue;
+            }
+            boolean fused = operation.kind.category == Operation.Category.POINT && i + 1 < operations.size()
+                    && operations.get(i + 1).kind.category == Operation.Category.POINT;
+            if (fused) {
+                continue;
+            }
+            long output = w * h * BYTES_PER_PIXEL;
+            peak = Math.max(peak, input + previous + output);
+            previous = output;
+            view = false;
+            if (i == expandAfter) {
+                w = width;
+                h = height;
+                output = w * h * BYTES_PER_PIXEL;
+                peak = Math.max(peak, input + previous + output);
+                previous = output;
+            }
+        }
+        if (view) {
+            peak = Math.max(peak, input + previous + w * h * BYTES_PER_PIXEL);
+        }
+        return peak;
+    }
+
+    /**
+     * Returns the budget.
+     *
+     * @return bytes that jobs in flight may use
+     */
+    long budget() {
+        return budget;
+    }
+
+    /**
+     * Returns the most memory reserved at once so far.
+     *
+     * @return peak reserved bytes
+     */
+    long peakBytes() {
+        return peak.get();
+    }
+
+    /**
+     * Appends the budget, its use and the admission counters in the Prometheus text exposition
+     * format.
+     *
+     * @param out where to append the metrics
+     */
+    void writeMetrics(StringBuilder out) {
+        Metrics.metric(out, "imageeditor_admission_budget_bytes", "gauge",
+                "Memory that images in flight may use", budget);
+        Metrics.metric(out, "imageeditor_admission_in_use_bytes", "gauge",
+                "Memory reserved by images in flight", inUse.get());
+        Metrics.metric(out, "imageeditor_admission_waiting", "gauge",
+                "Jobs waiting for memory", waiting.get());
+        Metrics.metric(out, "imageeditor_admission_admitted_total", "counter",
+                "Jobs admitted", admitted.sum());
+        Metrics.metric(out, "imageeditor_admission_rejected_total", "counter",
+                "Jobs rejected for lack of memory", rejected.sum());
+    }
+}
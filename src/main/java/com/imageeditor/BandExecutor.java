@@ -0,0 +1,79 @@
+package com.imageeditor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a kernel's rows (or columns, for rotations) into bands and runs them on a ForkJoinPool.
+ * <p>
+ * Every band writes a disjoint region of the output and kernels are pure functions of the source,
+ * so the result is byte-identical to running the whole range on one thread. Small images and
+ * single-thread pools skip the pool entirely.
+ */
+final class BandExecutor {
+
+    /** Images with fewer pixels than this are always processed on the calling thread. */
+    static final long SERIAL_THRESHOLD = 1L << 18;
+
+    /** Leaf tasks per pool thread, enough to even out bands that finish at different speeds. */
+    private static final int TASKS_PER_THREAD = 4;
+
+    /** A kernel restricted to the half-open range [from, to). */
+    interface Band {
+        void run(int from, int to);
+    }
+
+    private BandExecutor() {
+    }
+
+    /**
+     * Runs a kernel over [0, length), split into bands whose boundaries are multiples of alignment.
+     *
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @param length number of rows or columns to cover
+     * @param alignment band boundaries fall on multiples of this value, e.g. the blur block size
+     * @param pixels total pixel count, compared against {@link #SERIAL_THRESHOLD}
+     * @param band the kernel
+     */
+    static void run(ForkJoinPool pool, int length, int alignment, long pixels, Band band) {
+        int units = (length + alignment - 1) / alignment;
+        if (pool == null || pool.getParallelism() < 2 || pixels < SERIAL_THRESHOLD || units < 2) {
+            band.run(0, length);
+            return;
+        }
+        int leafUnits = Math.max(1, units / (pool.getParallelism() * TASKS_PER_THREAD));
+        pool.invoke(new BandTask(band, 0, units, leafUnits, alignment, length));
+    }
+
+    /** Recursively halves a range of alignment units until it is at most leafUnits long. */
+    private static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Band band;
+        private final int from;
+        private final int to;
+        private final int leafUnits;
+        private final int alignment;
+        private final int length;
+
+        BandTask(Band band, int from, int to, int leafUnits, int alignment, int length) {
+            this.band = band;
+            this.from = from;
+            this.to = to;
+            this.leafUnits = leafUnits;
+            this.alignment = alignment;
+            this.length = length;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafUnits) {
+                band.run(from * alignment, Math.min(to * alignment, length));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BandTask(band, from, middle, leafUnits, alignment, length),
+                    new BandTask(band, middle, to, leafUnits, alignment, length));
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Runs one {@link Pipeline} over many files in a single JVM.
+ * <p>
+ * Decoding, processing and encoding are separate stages, each with its own worker threads, connected
+ * by bounded queues, so one image is encoded while the next is processed and a third is decoded.
+ * Before an image is decoded its size is read from the file header and the pipeline's estimated peak
+ * footprint on it is taken from a memory budget; it is given back once the result has been encoded.
+ * Decoders block while the budget is exhausted, so the images in flight never exceed it. An image
+ * larger than the whole budget waits until nothing else is in flight. See {@link AdmissionController}.
+ * <p>
+ * A file that fails at any stage is reported and skipped, and its share of the budget given back; the
+ * rest of the batch carries on. An {@link Error} such as running out of memory is reported against its
+ * file too, but it ends the batch, since the JVM may be left in an unknown state: the other workers are
+ * interrupted, every share of the budget is given back and {@link #run} throws the Error.
+ */
+final class BatchRunner {
+
+    /** Marks the end of a queue; one is queued per downstream worker. */
+    private static final Job END = new Job(null, null);
+
+    private final Pipeline pipeline;
+    private final boolean draft;
+    private final int jobs;
+    private final ForkJoinPool pool;
+    private final AdmissionController admission;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicReference<Error> error = new AtomicReference<>();
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param pipeline the operations to run on every file
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @param jobs worker threads per stage, at least 1
+     * @param budget bytes that images in flight may use, at least 1024
+     * @param pool the pool kernels run on, or null to run on the worker threads
+     */
+    BatchRunner(Pipeline pipeline, boolean draft, int jobs, long budget, ForkJoinPool pool) {
+        if (jobs < 1 || budget < 1024) {
+            throw new IllegalArgumentException("Batch needs at least one job and 1 KB of memory");
+        }
+        this.pipeline = pipeline;
+        this.draft = draft;
+        this.jobs = jobs;
+        this.pool = pool;
+        this.admission = new AdmissionController(budget);
+    }
+
+    /** One file on its way through the stages. */
+    private static final class Job {
+
+        final File input;
+        final File output;
+        AdmissionController.Permit permit;
+        Pipeline.Decoded decoded;
+        BufferedImage result;
+
+        Job(File input, File output) {
+            this.input = input;
+            this.output = output;
+        }
+    }
+
+    /** The body of a stage's worker thread. */
+    private interface Worker {
+
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Lists the images a {@code --batch} argument names: the files of a directory whose extension an
+     * ImageIO reader handles, or the files matching a glob such as {@code photos/**.jpg}.
+     *
+     * @param pattern a directory or a glob
+     * @return matching files, sorted by path
+     * @throws IOException if a directory cannot be listed
+     */
+    static List<Path> inputs(String pattern) throws IOException {
+        Path base = base(pattern);
+        if (Files.isDirectory(Paths.get(pattern))) {
+            try (Stream<Path> files = Files.list(base)) {
+                return files.filter(Files::isRegularFile).filter(BatchRunner::isImage).sorted().toList();
+            }
+        }
+        if (!Files.isDirectory(base)) {
+            return List.of();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        try (Stream<Path> files = Files.walk(base)) {
+            // Paths under "" come out without a leading "./", spelled the way the pattern spells them.
+            return files.filter(Files::isRegularFile).filter(matcher::matches).sorted().toList();
+        }
+    }
+
+    /**
+     * Returns the directory the results' relative paths are taken from: the directory itself, or the
+     * part of a glob before its first wildcard.
+     *
+     * @param pattern a directory or a glob
+     * @return the base directory, the empty path for the working directory
+     */
+    static Path base(String pattern) {
+        if (Files.isDirectory(Paths.get(pattern))) {
+            return Paths.get(pattern);
+        }
+        int wildcard = indexOfAny(pattern, "*?[{");
+        int separator = pattern.lastIndexOf(File.separatorChar, wildcard < 0 ? pattern.length() : wildcard);
+        return Paths.get(separator < 0 ? "" : pattern.substring(0, separator + 1));
+    }
+
+    private static int indexOfAny(String text, String characters) {
+        for (int i = 0; i < text.length(); i++) {
+            if (characters.indexOf(text.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && ImageIO.getImageReadersBySuffix(name.substring(dot + 1).toLowerCase(Locale.ROOT))
+                .hasNext();
+    }
+
+    /**
+     * Processes every input, writing each result under {@code outputDir} at the input's path relative
+     * to {@code base}. Returns once every file has been written or has failed.
+     *
+     * @param inputs the files to process
+     * @param base the directory the inputs' relative paths are taken from
+     * @param outputDir the directory to write results to
+     * @return the number of files that failed
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws Error the first Error a file failed with, once every worker has stopped
+     */
+    int run(List<Path> inputs, Path base, Path outputDir) throws InterruptedException {
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(jobs);
+        BlockingQueue<Job> processed = new ArrayBlockingQueue<>(jobs);
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+
+        stage("decode", decoded, threads, () -> {
+            for (int i = next.getAndIncrement(); i < inputs.size(); i = next.getAndIncrement()) {
+                Path input = inputs.get(i);
+                Job job = new Job(input.toFile(), outputDir.resolve(base.relativize(input)).toFile());
+                if (decode(job)) {
+                    put(decoded, job);
+                }
+            }
+        });
+        stage("process", processed, threads, () -> {
+            for (Job job = decoded.take(); job != END; job = decoded.take()) {
+                try {
+                    job.result = pipeline.apply(job.decoded, pool);
+                } catch (RuntimeException e) {
+                    fail(job, e);
+                    continue;
+                } catch (Error e) {
+                    fail(job, e);
+                    throw e;
+                }
+                job.decoded = null;
+                put(processed, job);
+            }
+        });
+        stage("encode", null, threads, () -> {
+            for (Job job = processed.take(); job != END; job = processed.take()) {
+                try {
+                    File parent = job.output.getParentFile();
+                    if (parent != null) {
+                        Files.createDirectories(parent.toPath());
+                    }
+                    Pipeline.write(job.result, job.output, Pipeline.formatOf(job.output));
+                    release(job);
+                } catch (IOException | RuntimeException e) {
+                    fail(job, e);
+                } catch (Error e) {
+                    fail(job, e);
+                    throw e;
+                }
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Error e = error.get();
+        if (e != null) {
+            drain(decoded);
+            drain(processed);
+            throw e;
+        }
+        return failures.get();
+    }
+
+    /**
+     * Creates the workers of one stage. When the last of them finishes, however it finishes, each
+     * worker of the next stage is sent an {@link #END}, so no stage waits on one that has died. A
+     * worker that throws an Error interrupts every other worker of the batch.
+     */
+    private void stage(String name, BlockingQueue<Job> downstream, List<Thread> threads, Worker worker) {
+        AtomicInteger running = new AtomicInteger(jobs);
+        for (int i = 1; i <= jobs; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Error e) {
+                    abort(e, threads);
+                } finally {
+                    if (running.decrementAndGet() == 0 && downstream != null) {
+                        end(downstream);
+                    }
+                }
+            }, "batch-" + name + "-" + i);
+            threads.add(thread);
+        }
+    }
+
+    private void abort(Error e, List<Thread> threads) {
+        if (error.compareAndSet(null, e)) {
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /** Queues a job for the next stage, giving its budget back if interrupted while waiting. */
+    private void put(BlockingQueue<Job> queue, Job job) throws InterruptedException {
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            release(job);
+            throw e;
+        }
+    }
+
+    /** Gives back the budget of the jobs left in a queue by a batch that was ended by an Error. */
+    private void drain(BlockingQueue<Job> queue) {
+        for (Job job = queue.poll(); job != null; job = queue.poll()) {
+            release(job);
+        }
+    }
+
+    private void end(BlockingQueue<Job> downstream) {
+        try {
+            for (int j = 0; j < jobs; j++) {
+                downstream.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Reserves the job's share of the budget, then decodes it. Returns false if it failed. */
+    private boolean decode(Job job) throws InterruptedException {
+        try {
+            // Reject outputs that cannot be encoded before spending time on the decode.
+            Pipeline.formatOf(job.output);
+            job.permit = admission.acquire(ImageProbe.of(job.input).memory(pipeline, draft));
+            job.decoded = pipeline.decode(job.input, draft);
+            return true;
+        } catch (InterruptedIOException e) {
+            release(job);
+            throw new InterruptedException(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            fail(job, e);
+            return false;
+        } catch (Error e) {
+            fail(job, e);
+            throw e;
+        }
+    }
+
+    private void fail(Job job, Throwable e) {
+        failures.incrementAndGet();
+        System.err.println("Error: " + job.input + " - " + (e instanceof Error ? e : e.getMessage()));
+        release(job);
+    }
+
+    private void release(Job job) {
+        job.decoded = null;
+        job.result = null;
+        if (job.permit != null) {
+            job.permit.close();
+            job.permit = null;
+        }
+    }
+
+    /**
+     * Returns the largest estimated footprint that was in flight at once during {@link #run}.
+     *
+     * @return peak reserved bytes
+     */
+    long peakBytes() {
+        return admission.peakBytes();
+    }
+}
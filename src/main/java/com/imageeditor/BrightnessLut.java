@@ -0,0 +1,152 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Table-driven brightness adjustment.
+ * The clamped {@code c + (c * percentage) / 100} result is computed once for each of the 256 channel
+ * values, and the kernel then only indexes into that table, so no objects are allocated per pixel.
+ * When the SIMD backend is enabled the same formula is evaluated on whole vectors of channels instead.
+ * {@link #applyTable} is shared with {@link PointChain} for any other per-channel mapping.
+ */
+final class BrightnessLut {
+
+    private BrightnessLut() {
+    }
+
+    /**
+     * Builds the channel mapping for a brightness percentage.
+     *
+     * @param percentage brightness adjustment, any int
+     * @return table mapping each 8-bit channel value to its adjusted value
+     */
+    static byte[] table(int percentage) {
+        byte[] table = new byte[256];
+        for (int c = 0; c < 256; c++) {
+            int value = c + (c * percentage) / 100;
+            table[c] = (byte) Math.min(255, Math.max(0, value));
+        }
+        return table;
+    }
+
+    /**
+     * Applies the brightness table to an image, producing a TYPE_3BYTE_BGR result.
+     *
+     * @param inputImage the image to adjust
+     * @param percentage brightness adjustment
+     * @param pool pool to run bands on, or null to run on the calling thread
+     * @return brightness-adjusted image
+     */
+    static BufferedImage apply(BufferedImage inputImage, int percentage, ForkJoinPool pool) {
+        if (!SimdSupport.isEnabled()) {
+            return applyTable(inputImage, table(percentage), pool);
+        }
+        if (inputImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            return apply(PixelReader.of(inputImage), percentage, pool);
+        }
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        byte[] in = RasterKernels.bytes(inputImage);
+        int offset = RasterKernels.dataOffset(inputImage);
+        int stride = RasterKernels.scanlineStride(inputImage);
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                VectorKernels.brightnessBytes(in, offset + y * stride, rowBytes, percentage, out, y * rowBytes);
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Adjusts whatever the reader yields, e.g. an {@link ImageView}, producing a TYPE_3BYTE_BGR result.
+     *
+     * @param reader source pixels
+     * @param percentage brightness adjustment
+     * @param pool pool to run bands on, or null to run on the calling thread
+     * @return brightness-adjusted image
+     */
+    static BufferedImage apply(PixelReader reader, int percentage, ForkJoinPool pool) {
+        if (!SimdSupport.isEnabled()) {
+            return applyTable(reader, table(percentage), pool);
+        }
+        int width = reader.width;
+        int height = reader.height;
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                VectorKernels.brightnessRow(row, width, percentage, out, y * rowBytes);
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Maps every R, G and B channel of an image through one table, producing a TYPE_3BYTE_BGR result.
+     *
+     * @param inputImage the image to map
+     * @param lut 256-entry channel table
+     * @param pool pool to run bands on, or null to run on the calling thread
+     * @return mapped image
+     */
+    static BufferedImage applyTable(BufferedImage inputImage, byte[] lut, ForkJoinPool pool) {
+        if (inputImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            return applyTable(PixelReader.of(inputImage), lut, pool);
+        }
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        byte[] in = RasterKernels.bytes(inputImage);
+        int offset = RasterKernels.dataOffset(inputImage);
+        int stride = RasterKernels.scanlineStride(inputImage);
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int src = offset + y * stride;
+                int dst = y * rowBytes;
+                for (int i = 0; i < rowBytes; i++) {
+                    out[dst + i] = lut[in[src + i] & 0xFF];
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Maps every R, G and B channel the reader yields through one table, producing a TYPE_3BYTE_BGR result.
+     *
+     * @param reader source pixels
+     * @param lut 256-entry channel table
+     * @param pool pool to run bands on, or null to run on the calling thread
+     * @return mapped image
+     */
+    static BufferedImage applyTable(PixelReader reader, byte[] lut, ForkJoinPool pool) {
+        int width = reader.width;
+        int height = reader.height;
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                int p = y * rowBytes;
+                for (int x = 0; x < width; x++, p += 3) {
+                    int rgb = row[x];
+                    out[p] = lut[rgb & 0xFF];
+                    out[p + 1] = lut[(rgb >> 8) & 0xFF];
+                    out[p + 2] = lut[(rgb >> 16) & 0xFF];
+                }
+            }
+        });
+        return outputImage;
+    }
+}
@@ -0,0 +1,86 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Training run for the application class data sharing archive: loads the classes a short command
+ * needs by running it, so a JVM started with {@code -XX:ArchiveClassesAtExit} can dump them. Every
+ * pipeline operation runs once through the command line, decoding and encoding the bundled sample
+ * JPEG, and every operation of the interactive menu runs once on the decoded image.
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=image-editor.jsa -cp image-editor.jar com.imageeditor.CdsTraining
+ * java -XX:SharedArchiveFile=image-editor.jsa -jar image-editor.jar --in a.jpg --op blur:8
+ * </pre>
+ * The archive is only used with the same JVM build and the same jar, so it is made where it ships.
+ */
+public final class CdsTraining {
+
+    /** Pipeline operations run during training, one command each. */
+    static final List<String> OPERATIONS = List.of("grayscale", "brightness:10", "contrast:20", "gamma:1.8",
+            "invert", "rotate-right", "rotate-left", "rotate-180", "flip-horizontal", "flip-vertical", "auto-orient",
+            "crop:0,0,64,64", "blur:8");
+
+    private CdsTraining() {
+    }
+
+    /**
+     * Runs the training commands in a temporary directory, then removes it.
+     *
+     * @param args ignored
+     * @throws IOException if the sample cannot be read or a command fails
+     */
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("image-editor-cds");
+        try {
+            train(dir);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the training commands, reading and writing images in a directory.
+     *
+     * @param dir where the sample and the results are written
+     * @throws IOException if the sample cannot be read or a command fails
+     */
+    static void train(Path dir) throws IOException {
+        Path sample = dir.resolve("sample.jpg");
+        try (InputStream in = CdsTraining.class.getResourceAsStream("/taylor.jpg")) {
+            if (in == null) {
+                throw new IOException("Could not read image file - taylor.jpg");
+            }
+            Files.copy(in, sample, StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (int i = 0; i < OPERATIONS.size(); i++) {
+            String output = dir.resolve("pipeline-" + i + ".jpg").toString();
+            if (CommandLine.run(new String[] {"--in", sample.toString(), "--op", OPERATIONS.get(i), "--out", output})
+                    != 0) {
+                throw new IOException("Training command failed - " + OPERATIONS.get(i));
+            }
+        }
+
+        BufferedImage image = ImageIO.read(sample.toFile());
+        List<BufferedImage> results = List.of(ImageEditor.convertToGrayscale(image),
+                ImageEditor.adjustBrightness(image, 10), ImageEditor.rotateRight(image),
+                ImageEditor.rotateLeft(image), ImageEditor.flipHorizontal(image), ImageEditor.flipVertical(image),
+                ImageEditor.applyBlur(image, 8), ImageEditor.rotate180(image));
+        for (int i = 0; i < results.size(); i++) {
+            ImageIO.write(results.get(i), "jpg", new File(dir.toFile(), "menu-" + i + ".jpg"));
+        }
+    }
+}
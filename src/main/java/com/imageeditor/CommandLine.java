@@ -0,0 +1,408 @@
+package com.imageeditor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line parsing and the non-interactive modes of {@link ImageEditor}; the help text is in
+ * {@link Usage}.
+ */
+final class CommandLine {
+
+    private int threads = 1;
+    private String input;
+    private String output;
+    private boolean stream;
+    private boolean draft;
+    private boolean probe;
+    private String batch;
+    private String outputDir;
+    private int jobs;
+    private String manifest;
+    private String log;
+    private int memory;
+    private int serve = -1;
+    private int cache;
+    private String cacheDir;
+    private int cacheDisk;
+    private int decodeCache;
+    private String daemon;
+    private final List<String> operations = new ArrayList<>();
+    private final Path directory;
+
+    private CommandLine(Path directory) {
+        this.directory = directory;
+        this.outputDir = path("output");
+    }
+
+    /**
+     * Parses the command line and runs the mode it selects, the interactive mode by default.
+     *
+     * @param args command line arguments
+     * @return process exit status, 0 on success
+     * @throws IOException if image file operations fail in interactive mode
+     */
+    static int run(String[] args) throws IOException {
+        return run(args, null);
+    }
+
+    /**
+     * Parses the command line and runs the mode it selects, resolving relative paths against a
+     * directory other than the JVM's, as for a command sent to the {@link Daemon}. Such a command
+     * may not select the interactive, server or daemon mode: they would read the daemon's own
+     * standard input or never end.
+     *
+     * @param args command line arguments
+     * @param directory the directory relative paths are resolved against, or null for the JVM's and
+     *     every mode
+     * @return process exit status, 0 on success
+     * @throws IOException if image file operations fail in interactive mode
+     */
+    static int run(String[] args, Path directory) throws IOException {
+        CommandLine line = new CommandLine(directory);
+        for (int i = 0; i < args.length; i++) {
+            if ("--help".equals(args[i]) || "-h".equals(args[i])) {
+                Usage.print();
+                return 0;
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                line.threads = positive(args[++i]);
+                if (line.threads < 1) {
+                    System.err.println("Error: --threads expects a positive integer - " + args[i]);
+                    return 1;
+                }
+            } else if ("--jobs".equals(args[i]) && i + 1 < args.length) {
+                line.jobs = positive(args[++i]);
+                if (line.jobs < 1) {
+                    System.err.println("Error: --jobs expects a positive integer - " + args[i]);
+                    return 1;
+                }
+            } else if ("--memory".equals(args[i]) && i + 1 < args.length) {
+                line.memory = positive(args[++i]);
+                if (line.memory < 1) {
+                    System.err.println("Error: --memory expects a positive number of megabytes - " + args[i]);
+                    return 1;
+                }
+            } else if ("--serve".equals(args[i]) && i + 1 < args.length) {
+                line.serve = port(args[++i]);
+                if (line.serve < 0) {
+                    System.err.println("Error: --serve expects a port number - " + args[i]);
+                    return 1;
+                }
+            } else if ("--cache".equals(args[i]) && i + 1 < args.length) {
+                line.cache = positive(args[++i]);
+                if (line.cache < 1) {
+                    System.err.println("Error: --cache expects a positive number of megabytes - " + args[i]);
+                    return 1;
+                }
+            } else if ("--cache-dir".equals(args[i]) && i + 1 < args.length) {
+                line.cacheDir = line.path(args[++i]);
+            } else if ("--cache-disk".equals(args[i]) && i + 1 < args.length) {
+                line.cacheDisk = positive(args[++i]);
+                if (line.cacheDisk < 1) {
+                    System.err.println("Error: --cache-disk expects a positive number of megabytes - " + args[i]);
+                    return 1;
+                }
+            } else if ("--decode-cache".equals(args[i]) && i + 1 < args.length) {
+                line.decodeCache = positive(args[++i]);
+                if (line.decodeCache < 1) {
+                    System.err.println("Error: --decode-cache expects a positive number of megabytes - " + args[i]);
+                    return 1;
+                }
+            } else if ("--batch".equals(args[i]) && i + 1 < args.length) {
+                line.batch = line.path(args[++i]);
+            } else if ("--manifest".equals(args[i]) && i + 1 < args.length) {
+                line.manifest = line.path(args[++i]);
+            } else if ("--log".equals(args[i]) && i + 1 < args.length) {
+                line.log = line.path(args[++i]);
+            } else if ("--out-dir".equals(args[i]) && i + 1 < args.length) {
+                line.outputDir = line.path(args[++i]);
+            } else if ("--in".equals(args[i]) && i + 1 < args.length) {
+                line.input = line.path(args[++i]);
+            } else if ("--out".equals(args[i]) && i + 1 < args.length) {
+                line.output = line.path(args[++i]);
+            } else if ("--op".equals(args[i]) && i + 1 < args.length) {
+                line.operations.add(args[++i]);
+            } else if ("--daemon".equals(args[i]) && i + 1 < args.length) {
+                line.daemon = args[++i];
+            } else if ("--stream".equals(args[i])) {
+                line.stream = true;
+            } else if ("--draft".equals(args[i])) {
+                line.draft = true;
+            } else if ("--probe".equals(args[i])) {
+                line.probe = true;
+            } else {
+                System.err.println("Error: Unknown option - " + args[i]);
+                Usage.print();
+                return 1;
+            }
+        }
+
+        boolean pipelineMode = line.input != null || line.output != null || !line.operations.isEmpty()
+                || line.stream || line.draft;
+        if ((line.cache > 0 || line.cacheDir != null || line.decodeCache > 0) && line.serve < 0
+                && line.manifest == null) {
+            System.err.println("Error: Caches are only used with --manifest or --serve");
+            return 1;
+        }
+        if (line.daemon != null && args.length > 2) {
+            System.err.println("Error: --daemon takes the options of each command from its client");
+            return 1;
+        }
+        if (line.cacheDisk > 0 && line.cacheDir == null) {
+            System.err.println("Error: --cache-disk needs --cache-dir");
+            return 1;
+        }
+        if (line.serve >= 0 && (line.input != null || line.output != null || !line.operations.isEmpty()
+                || line.stream || line.batch != null || line.manifest != null)) {
+            System.err.println("Error: --serve takes its images and operations from the requests");
+            return 1;
+        }
+        if (pipelineMode && line.input == null && line.batch == null && line.manifest == null && line.serve < 0) {
+            System.err.println("Error: --in is required with --op and --out");
+            return 1;
+        }
+        if (line.probe && (line.input == null && line.batch == null || line.stream)) {
+            System.err.println("Error: --probe needs --in or --batch and cannot be combined with --stream");
+            return 1;
+        }
+        if (line.stream && line.draft) {
+            System.err.println("Error: --draft cannot be combined with --stream");
+            return 1;
+        }
+        if (line.batch != null && (line.input != null || line.output != null || line.stream)) {
+            System.err.println("Error: --batch cannot be combined with --in, --out or --stream");
+            return 1;
+        }
+        if (line.manifest != null && (line.input != null || line.output != null || !line.operations.isEmpty()
+                || line.stream || line.batch != null)) {
+            System.err.println("Error: --manifest takes its inputs, operations and outputs from the file");
+            return 1;
+        }
+
+        boolean interactive = !pipelineMode && line.batch == null && line.manifest == null && line.serve < 0
+                && line.daemon == null;
+        if (directory != null && (interactive || line.serve >= 0 || line.daemon != null)) {
+            System.err.println("Error: The daemon runs pipeline, batch and manifest commands, not interactive,"
+                    + " server or daemon modes");
+            return 1;
+        }
+        if (line.daemon != null) {
+            return line.runDaemon();
+        }
+        ForkJoinPool pool = line.threads > 1 ? new ForkJoinPool(line.threads) : null;
+        try {
+            if (line.serve >= 0) {
+                return line.runServer(pool);
+            }
+            if (line.batch != null) {
+                return line.runBatch(pool);
+            }
+            if (line.manifest != null) {
+                return line.runManifest(pool);
+            }
+            if (!interactive) {
+                return line.runPipeline(pool);
+            }
+            ImageEditor.runInteractive(pool);
+            return 0;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static int positive(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int port(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            return port <= 0xFFFF ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int runServer(ForkJoinPool pool) throws IOException {
+        int workers = jobs > 0 ? jobs : ManifestRunner.defaultWorkers();
+        ImageServer server = new ImageServer(new InetSocketAddress(serve), workers, draft, pool, resultCache(),
+                decodedCache(), new AdmissionController(budget(), ImageServer.ADMISSION_WAIT));
+        CountDownLatch stopped = new CountDownLatch(1);
+        // Runs on SIGTERM, so a pod being replaced finishes the requests it already accepted.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(5);
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Listening on port " + server.port() + " with " + workers + " workers");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop(0);
+        }
+        return 0;
+    }
+
+    private int runDaemon() throws IOException {
+        Daemon server = new Daemon(Paths.get(daemon));
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopped.countDown();
+        }));
+        server.start();
+        System.out.println("Listening on " + daemon);
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop();
+        }
+        return 0;
+    }
+
+    /** Resolves a path given on the command line against the directory commands run in. */
+    private String path(String value) {
+        return directory == null ? value : directory.resolve(value).toString();
+    }
+
+    /** Returns the memory images in flight may use: {@code --memory}, or half the maximum heap. */
+    private long budget() {
+        return memory > 0 ? memory * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    private DecodedCache decodedCache() {
+        return decodeCache > 0 ? new DecodedCache(decodeCache * 1024L * 1024L) : null;
+    }
+
+    private ResultCache resultCache() throws IOException {
+        if (cacheDir == null) {
+            return cache > 0 ? new ResultCache(cache * 1024L * 1024L) : null;
+        }
+        long diskBytes = (cacheDisk > 0 ? cacheDisk : 1024) * 1024L * 1024L;
+        return new ResultCache(cache * 1024L * 1024L, new DiskCache(Paths.get(cacheDir), diskBytes));
+    }
+
+    private int runBatch(ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        List<Path> inputs = BatchRunner.inputs(batch);
+        if (inputs.isEmpty()) {
+            System.err.println("Error: No images found - " + batch);
+            return 1;
+        }
+        if (probe) {
+            return probeBatch(inputs);
+        }
+        int failures;
+        try {
+            BatchRunner runner = new BatchRunner(new Pipeline(operations), draft, Math.max(jobs, 1), budget(), pool);
+            failures = runner.run(inputs, BatchRunner.base(batch), Paths.get(outputDir));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        System.out.printf("Processed %d of %d images into %s in %d ms%n", inputs.size() - failures, inputs.size(),
+                outputDir, (System.nanoTime() - start) / 1_000_000);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private int runManifest(ForkJoinPool pool) throws IOException {
+        Path file = Paths.get(manifest);
+        if (!Files.isRegularFile(file)) {
+            System.err.println("Error: File not found - " + manifest);
+            return 1;
+        }
+        Path base = file.toAbsolutePath().getParent();
+        int workers = jobs > 0 ? jobs : ManifestRunner.defaultWorkers();
+        ResultCache results = resultCache();
+        DecodedCache decoded = decodedCache();
+        int failures;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                Writer writer = log == null
+                        ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                        : Files.newBufferedWriter(Paths.get(log), StandardCharsets.UTF_8)) {
+            failures = new ManifestRunner(workers, draft, pool, results, decoded, new AdmissionController(budget()))
+                    .run(reader, base, writer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        if (results != null) {
+            System.err.println(results.summary());
+        }
+        if (decoded != null) {
+            System.err.println(decoded.summary());
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    private int probeBatch(List<Path> inputs) {
+        Pipeline pipeline;
+        try {
+            pipeline = new Pipeline(operations);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        int failures = 0;
+        for (Path input : inputs) {
+            try {
+                System.out.println(ImageProbe.of(input.toFile()).toJson(input.toString(), pipeline, null, draft));
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                failures++;
+            }
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    private int runPipeline(ForkJoinPool pool) {
+        File inputFile = new File(input);
+        String target = output == null ? path("output.jpg") : output;
+        if (!inputFile.exists()) {
+            System.err.println("Error: File not found - " + input);
+            return 1;
+        }
+        try {
+            Pipeline pipeline = new Pipeline(operations);
+            if (probe) {
+                String format = output == null ? null : Pipeline.formatOf(new File(output));
+                System.out.println(ImageProbe.of(inputFile).toJson(null, pipeline, format, draft));
+                return 0;
+            }
+            if (stream) {
+                new StreamingPipeline(pipeline).run(inputFile, new File(target), pool);
+            } else {
+                pipeline.run(inputFile, new File(target), draft, pool);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        System.out.println("Output saved to: " + target);
+        return 0;
+    }
+}
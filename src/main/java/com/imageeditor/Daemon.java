@@ -0,0 +1,222 @@
+package com.imageeditor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs command lines sent by {@link DaemonClient} over a Unix domain socket, in one JVM that stays
+ * warm between them, so a script calling the editor many times pays for JVM startup, class loading
+ * and JIT compilation once instead of on every call.
+ * <p>
+ * A request is the client's working directory followed by its arguments, as {@code writeUTF}
+ * strings after an argument count. The arguments mean exactly what they mean to
+ * {@link ImageEditor#main}, with relative paths resolved against the client's directory. The reply
+ * is a sequence of frames: a type byte and an int, then for {@link #STDOUT} and {@link #STDERR} that
+ * many bytes of output, written as the command produces them. An {@link #EXIT} frame carries the
+ * exit status instead and ends the reply.
+ * <p>
+ * Standard output and error are redirected to the client for the length of a command, so commands
+ * run one at a time; each may still use {@code --threads} and {@code --jobs}. Connections wait their
+ * turn on their own thread, so a client that never sends its request holds up only itself. The
+ * socket is only accessible to the user running the daemon, since commands read and write files
+ * with the daemon's permissions.
+ */
+final class Daemon {
+
+    /** Frame type of a chunk of standard output. */
+    static final int STDOUT = 1;
+
+    /** Frame type of a chunk of standard error. */
+    static final int STDERR = 2;
+
+    /** Frame type of the exit status, the last frame of a reply. */
+    static final int EXIT = 0;
+
+    /** Most arguments a request may carry. */
+    static final int MAX_ARGUMENTS = 1024;
+
+    private final Path socket;
+    private final ServerSocketChannel server;
+    private final Object running = new Object();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Creates a daemon listening on a socket file. It does not accept commands until started.
+     *
+     * @param socket the socket file; a stale one left by a daemon that died is replaced
+     * @throws IOException if another daemon is listening on the socket, something other than a socket
+     *         is in its place, or it cannot be bound
+     */
+    Daemon(Path socket) throws IOException {
+        this.socket = socket;
+        if (Files.exists(socket, LinkOption.NOFOLLOW_LINKS)) {
+            if (!Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther()) {
+                throw new IOException("Not a socket - " + socket);
+            }
+            if (listening(UnixDomainSocketAddress.of(socket))) {
+                throw new IOException("A daemon is already listening on " + socket);
+            }
+            Files.delete(socket);
+        }
+        // A socket is created with the permissions the umask allows, so it is bound inside a
+        // directory only this user can enter, narrowed there, and only then moved into place.
+        Path staging = Files.createTempDirectory(socket.toAbsolutePath().getParent(), ".daemon",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        Path bound = staging.resolve("s");
+        try {
+            server.bind(UnixDomainSocketAddress.of(bound));
+            Files.setPosixFilePermissions(bound, PosixFilePermissions.fromString("rw-------"));
+            Files.move(bound, socket, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        } finally {
+            Files.deleteIfExists(bound);
+            Files.delete(staging);
+        }
+    }
+
+    /** Starts accepting commands. */
+    void start() {
+        new Thread(this::accept, "daemon-acceptor").start();
+    }
+
+    /**
+     * Stops accepting commands and removes the socket file. A command in progress runs to its end.
+     */
+    void stop() {
+        try {
+            server.close();
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    private static boolean listening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void accept() {
+        while (true) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+            Thread connection = new Thread(() -> serve(client), "daemon-client-" + connections.incrementAndGet());
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+            String directory = in.readUTF();
+            int count = in.readInt();
+            int status;
+            if (count < 0 || count > MAX_ARGUMENTS) {
+                byte[] error = ("Error: A command takes 0 to " + MAX_ARGUMENTS + " arguments, not " + count
+                        + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+                new FrameOutputStream(out, STDERR).write(error, 0, error.length);
+                status = 1;
+            } else {
+                String[] args = new String[count];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = in.readUTF();
+                }
+                status = execute(args, Paths.get(directory), out);
+            }
+            synchronized (out) {
+                out.writeByte(EXIT);
+                out.writeInt(status);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; there is no one left to tell.
+        }
+    }
+
+    /** Runs one command line with standard output and error sent to the client, returning its status. */
+    private int execute(String[] args, Path directory, DataOutputStream client) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(client, STDOUT)), true,
+                StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(new BufferedOutputStream(new FrameOutputStream(client, STDERR)), true,
+                StandardCharsets.UTF_8);
+        synchronized (running) {
+            PrintStream stdout = System.out;
+            PrintStream stderr = System.err;
+            System.setOut(out);
+            System.setErr(err);
+            try {
+                return CommandLine.run(args, directory);
+            } catch (IOException | RuntimeException e) {
+                err.println("Error: " + e);
+                return 1;
+            } finally {
+                out.flush();
+                err.flush();
+                System.setOut(stdout);
+                System.setErr(stderr);
+            }
+        }
+    }
+
+    /** Writes each chunk it is given to the client as one frame of its type. */
+    private static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream client;
+        private final int type;
+
+        FrameOutputStream(DataOutputStream client, int type) {
+            this.client = client;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            synchronized (client) {
+                client.writeByte(type);
+                client.writeInt(length);
+                client.write(bytes, offset, length);
+                client.flush();
+            }
+        }
+    }
+}
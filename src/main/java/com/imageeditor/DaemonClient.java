@@ -0,0 +1,96 @@
+package com.imageeditor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Thin client for the {@link Daemon}: sends its command line to a warm editor JVM and relays the
+ * output and exit status, so it starts as fast as a JVM can and loads none of the imaging classes.
+ * <pre>
+ * java -cp image-editor.jar com.imageeditor.DaemonClient /tmp/editor.sock --in a.jpg --op blur:8 --out b.jpg
+ * </pre>
+ * The first argument is the daemon's socket file; the rest mean what they mean to
+ * {@link ImageEditor#main}, with relative paths resolved against the client's working directory.
+ */
+public final class DaemonClient {
+
+    private DaemonClient() {
+    }
+
+    /**
+     * Sends a command line to the daemon and exits with its status.
+     *
+     * @param args the socket file, then the command line
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: DaemonClient SOCKET [options]");
+            System.exit(1);
+        }
+        int status;
+        try {
+            status = run(Paths.get(args[0]), Arrays.copyOfRange(args, 1, args.length),
+                    System.getProperty("user.dir"), System.out, System.err);
+        } catch (IOException e) {
+            System.err.println("Error: Daemon on " + args[0] + " - " + e.getMessage());
+            status = 1;
+        }
+        System.out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Runs a command line on the daemon.
+     *
+     * @param socket the daemon's socket file
+     * @param args the command line
+     * @param directory the directory relative paths in it are resolved against
+     * @param out where the command's standard output goes
+     * @param err where the command's standard error goes
+     * @return the command's exit status
+     * @throws IOException if the daemon cannot be reached or goes away before the command ends
+     */
+    static int run(Path socket, String[] args, String directory, OutputStream out, OutputStream err)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            request.writeUTF(directory);
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+            DataInputStream reply = new DataInputStream(Channels.newInputStream(channel));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                int type;
+                try {
+                    type = reply.readByte();
+                } catch (EOFException e) {
+                    throw new IOException("The daemon closed the connection before the command ended");
+                }
+                if (type == Daemon.EXIT) {
+                    return reply.readInt();
+                }
+                int length = reply.readInt();
+                OutputStream target = type == Daemon.STDERR ? err : out;
+                while (length > 0) {
+                    int chunk = Math.min(length, buffer.length);
+                    reply.readFully(buffer, 0, chunk);
+                    target.write(buffer, 0, chunk);
+                    length -= chunk;
+                }
+                target.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Cache of decoded inputs, so a source that several requests or jobs process with different
+ * operations is decoded once. Uploads are identified by a SHA-256 hash of their bytes and files by
+ * their path, size and modification time; both keys also carry what the pipeline asks of the
+ * decoder, the draft subsampling factor and whether the EXIF orientation is read.
+ * <p>
+ * Entries are {@linkplain Pipeline.Decoded#shared() shared}: pipelines read them from any number of
+ * threads and copy rather than modify them. They are evicted least recently used first, weighted by
+ * the size of their pixel data, under a capacity in bytes; see {@link LruCache}. Concurrent misses
+ * on the same key are decoded once; see {@link SingleFlight}.
+ */
+final class DecodedCache {
+
+    private final LruCache<String, Pipeline.Decoded> entries;
+    private final SingleFlight<String, Pipeline.Decoded> flights = new SingleFlight<>();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the total size of the decoded pixel data it may hold, in bytes
+     */
+    DecodedCache(long capacity) {
+        this.entries = new LruCache<>(capacity, decoded -> bytes(decoded.image));
+    }
+
+    /**
+     * Returns an upload decoded for a pipeline, decoding it on a miss.
+     *
+     * @param input the encoded image
+     * @param name what to call the input in error messages
+     * @param pipeline the pipeline that will run on it
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @return the shared decoded image
+     * @throws IOException if the input cannot be decoded
+     */
+    Pipeline.Decoded decode(byte[] input, String name, Pipeline pipeline, boolean draft) throws IOException {
+        String key = ResultCache.hex(ResultCache.sha256().digest(input)) + variant(pipeline, draft);
+        Pipeline.Decoded decoded = entries.get(key);
+        if (decoded == null) {
+            decoded = flights.run(key, () -> {
+                Pipeline.Decoded fresh;
+                try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(input))) {
+                    fresh = pipeline.decode(stream, name, draft).shared();
+                }
+                entries.put(key, fresh);
+                return fresh;
+            });
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns an image file decoded for a pipeline, decoding it on a miss. A file that is replaced
+     * or rewritten gets a new size or modification time and so a new entry.
+     *
+     * @param input the image file
+     * @param pipeline the pipeline that will run on it
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @return the shared decoded image
+     * @throws IOException if the input cannot be read or decoded
+     */
+    Pipeline.Decoded decode(File input, Pipeline pipeline, boolean draft) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(input.toPath(), BasicFileAttributes.class);
+        String key = input.getAbsolutePath() + '\0' + attributes.size() + '\0'
+                + attributes.lastModifiedTime().toMillis() + variant(pipeline, draft);
+        Pipeline.Decoded decoded = entries.get(key);
+        if (decoded == null) {
+            decoded = flights.run(key, () -> {
+                Pipeline.Decoded fresh = pipeline.decode(input, draft).shared();
+                entries.put(key, fresh);
+                return fresh;
+            });
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns the cache's counters and size.
+     *
+     * @return a snapshot of the statistics
+     */
+    LruCache.Stats stats() {
+        return entries.stats();
+    }
+
+    /**
+     * Appends the statistics in the Prometheus text exposition format.
+     *
+     * @param out where to append the metrics
+     */
+    void writeMetrics(StringBuilder out) {
+        Metrics.cache(out, "imageeditor_decoded_cache", "decoded image cache", stats());
+    }
+
+    /**
+     * Describes the statistics in one line for logs.
+     *
+     * @return e.g. {@code Decoded image cache: 12 hits, 3 misses (80.0% hit rate), 0 evictions}
+     */
+    String summary() {
+        LruCache.Stats stats = stats();
+        return String.format(Locale.ROOT, "Decoded image cache: %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                stats.hits, stats.misses, stats.hitRate() * 100, stats.evictions);
+    }
+
+    /** What a pipeline asks of the decoder beyond the input itself. */
+    private static String variant(Pipeline pipeline, boolean draft) {
+        int factor = draft ? Subsampling.factor(pipeline.operations()) : 1;
+        return "/" + factor + (pipeline.needsOrientation() ? "/exif" : "");
+    }
+
+    /**
+     * Returns the size of an image's pixel data.
+     *
+     * @param image the image
+     * @return the bytes its data buffer holds
+     */
+    static long bytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
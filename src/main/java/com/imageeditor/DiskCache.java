@@ -0,0 +1,287 @@
+package com.imageeditor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Second, on-disk tier of the {@link ResultCache}, bounded by total file size.
+ * <p>
+ * Each entry is one file named by its key, under a subdirectory named by the key's first two
+ * digits. Entries are written to a temporary file and renamed into place atomically, so readers,
+ * including other processes sharing the directory, see a whole entry or none. Hits are memory
+ * mapped rather than read onto the heap. A file's modification time is its last use, which makes
+ * the directory its own index: it is rescanned on startup, so the cache survives restarts.
+ * <p>
+ * When the files exceed the capacity, a background thread deletes the least recently used ones
+ * until they fill at most {@link #LOW_WATER} of it. An entry deleted while mapped stays readable
+ * through the mapping.
+ */
+final class DiskCache implements Closeable {
+
+    /** Fraction of the capacity eviction brings the cache down to. */
+    static final double LOW_WATER = 0.9;
+
+    private static final String TEMPORARY = ".tmp";
+
+    private final Path directory;
+    private final long capacity;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicBoolean evictionPending = new AtomicBoolean();
+    private final ExecutorService evictor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "disk-cache-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitBytes = new LongAdder();
+
+    /**
+     * Opens a cache directory, creating it if needed and indexing the entries already in it.
+     * Temporary files left by an interrupted write are deleted; nothing else in the directory is.
+     *
+     * @param directory the cache directory
+     * @param capacity the total size the entries may have, in bytes
+     * @throws IOException if the directory cannot be created or scanned
+     */
+    DiskCache(Path directory, long capacity) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.capacity = capacity;
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (isTemporary(name) && inShard(file, name)) {
+                    Files.deleteIfExists(file);
+                } else if (isKey(name) && inShard(file, name)) {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    index.put(name, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    size.addAndGet(attributes.size());
+                }
+            }
+        }
+        evictIfFull();
+    }
+
+    /**
+     * Returns a cached entry, mapped read-only, and marks it most recently used.
+     *
+     * @param key the entry's key, as returned by {@link ResultCache#key}
+     * @return the entry's bytes, or null on a miss
+     */
+    ByteBuffer get(String key) {
+        Path file = file(key);
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            // An eviction can delete a file a concurrent put has just indexed again; forget it so
+            // the next put writes it back.
+            Entry stale = index.remove(key);
+            if (stale != null) {
+                size.addAndGet(-stale.size);
+            }
+            misses.increment();
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error: Could not read cache entry - " + e.getMessage());
+            misses.increment();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = index.get(key);
+        if (entry == null) {
+            // Written by another process sharing the directory.
+            entry = new Entry(bytes.remaining(), now);
+            if (index.putIfAbsent(key, entry) == null) {
+                size.addAndGet(entry.size);
+            }
+        }
+        entry.lastUsed = now;
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // Evicted meanwhile; the mapping is still valid.
+        }
+        hits.increment();
+        hitBytes.add(bytes.remaining());
+        return bytes;
+    }
+
+    /**
+     * Stores an entry unless it is already cached or larger than the whole cache. Write errors
+     * are reported and otherwise ignored: a cache that cannot be written only costs recomputation.
+     *
+     * @param key the entry's key, as returned by {@link ResultCache#key}
+     * @param bytes the entry's contents
+     */
+    void put(String key, byte[] bytes) {
+        if (bytes.length > capacity || index.containsKey(key)) {
+            return;
+        }
+        Path file = file(key);
+        Path temporary = null;
+        try {
+            Path shard = Files.createDirectories(file.getParent());
+            temporary = Files.createTempFile(shard, key, TEMPORARY);
+            Files.write(temporary, bytes);
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: Could not write cache entry - " + e.getMessage());
+            deleteQuietly(temporary);
+            return;
+        }
+        if (index.putIfAbsent(key, new Entry(bytes.length, System.currentTimeMillis())) == null) {
+            size.addAndGet(bytes.length);
+        }
+        evictIfFull();
+    }
+
+    /**
+     * Returns the counters and current size of the cache.
+     *
+     * @return a snapshot of the statistics; hit weight is the bytes served
+     */
+    LruCache.Stats stats() {
+        return new LruCache.Stats(hits.sum(), misses.sum(), evictions.sum(), hitBytes.sum(), size.get(),
+                index.size(), capacity);
+    }
+
+    /** Stops the eviction thread. Entries stay on disk for the next start. */
+    @Override
+    public void close() {
+        evictor.shutdown();
+    }
+
+    /**
+     * Waits until no eviction is scheduled or running.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitEviction() throws InterruptedException {
+        do {
+            try {
+                evictor.submit(() -> { }).get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        } while (evictionPending.get());
+    }
+
+    private void evictIfFull() {
+        if (size.get() > capacity && evictionPending.compareAndSet(false, true) && !evictor.isShutdown()) {
+            evictor.execute(this::evict);
+        }
+    }
+
+    private void evict() {
+        try {
+            List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            long target = (long) (capacity * LOW_WATER);
+            for (Map.Entry<String, Entry> entry : entries) {
+                if (size.get() <= target) {
+                    break;
+                }
+                if (index.remove(entry.getKey(), entry.getValue())) {
+                    deleteQuietly(file(entry.getKey()));
+                    size.addAndGet(-entry.getValue().size);
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionPending.set(false);
+        }
+        // Entries added while this pass ran may have filled the cache again.
+        evictIfFull();
+    }
+
+    private Path file(String key) {
+        if (!isKey(key)) {
+            throw new IllegalArgumentException("Not a cache key - " + key);
+        }
+        return directory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /** Tells whether a name is one {@link #put} gives its temporary files: the key, digits, {@code .tmp}. */
+    private static boolean isTemporary(String name) {
+        if (!name.endsWith(TEMPORARY) || name.length() <= 64 + TEMPORARY.length() || !isKey(name.substring(0, 64))) {
+            return false;
+        }
+        for (int i = 64; i < name.length() - TEMPORARY.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Tells whether a file sits in the shard directory its name's first two digits select. */
+    private boolean inShard(Path file, String name) {
+        Path shard = file.getParent();
+        return directory.equals(shard.getParent()) && shard.getFileName().toString().equals(name.substring(0, 2));
+    }
+
+    private static boolean isKey(String name) {
+        if (name.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (Character.digit(name.charAt(i), 16) < 0 || Character.isUpperCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // Left for the next startup scan or eviction pass.
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final long size;
+        volatile long lastUsed;
+
+        Entry(long size, long lastUsed) {
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.imageeditor;
+
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import org.w3c.dom.Node;
+
+/**
+ * Extracts the EXIF orientation tag from decoded JPEG metadata.
+ * <p>
+ * The JDK JPEG plugin exposes the APP1 segment as an opaque {@code unknown} marker, so the TIFF
+ * structure inside it is walked by hand: byte order, the offset of IFD0, and IFD0's entries up to
+ * tag 0x0112. Anything malformed, truncated or absent yields IDENTITY.
+ */
+final class ExifReader {
+
+    private static final String JPEG_FORMAT = "javax_imageio_jpeg_image_1.0";
+    private static final int APP1 = 0xE1;
+    private static final int ORIENTATION_TAG = 0x0112;
+    private static final int TYPE_SHORT = 3;
+    private static final byte[] EXIF_HEADER = {'E', 'x', 'i', 'f', 0, 0};
+
+    private ExifReader() {
+    }
+
+    /**
+     * Reads the orientation of a decoded image.
+     *
+     * @param metadata image metadata from an ImageReader, may be null
+     * @return the transform that brings the image upright
+     */
+    static Orientation orientation(IIOMetadata metadata) {
+        if (metadata == null || !JPEG_FORMAT.equals(metadata.getNativeMetadataFormatName())) {
+            return Orientation.IDENTITY;
+        }
+        Node root = metadata.getAsTree(JPEG_FORMAT);
+        for (Node child = root.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (!"markerSequence".equals(child.getNodeName())) {
+                continue;
+            }
+            for (Node marker = child.getFirstChild(); marker != null; marker = marker.getNextSibling()) {
+                if (isExifMarker(marker)) {
+                    return Orientation.fromExif(orientationTag((byte[]) ((IIOMetadataNode) marker).getUserObject()));
+                }
+            }
+        }
+        return Orientation.IDENTITY;
+    }
+
+    private static boolean isExifMarker(Node marker) {
+        if (!"unknown".equals(marker.getNodeName()) || !(marker instanceof IIOMetadataNode)) {
+            return false;
+        }
+        Node tag = marker.getAttributes().getNamedItem("MarkerTag");
+        if (tag == null || Integer.parseInt(tag.getNodeValue()) != APP1) {
+            return false;
+        }
+        Object data = ((IIOMetadataNode) marker).getUserObject();
+        if (!(data instanceof byte[]) || ((byte[]) data).length < EXIF_HEADER.length) {
+            return false;
+        }
+        byte[] bytes = (byte[]) data;
+        for (int i = 0; i < EXIF_HEADER.length; i++) {
+            if (bytes[i] != EXIF_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the orientation value in an APP1 payload.
+     *
+     * @param app1 the segment payload, starting with the Exif header
+     * @return the tag value, or 1 if it is missing or the data is malformed
+     */
+    static int orientationTag(byte[] app1) {
+        int tiff = EXIF_HEADER.length;
+        if (app1.length < tiff + 8) {
+            return 1;
+        }
+        boolean littleEndian;
+        if (app1[tiff] == 'I' && app1[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (app1[tiff] == 'M' && app1[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return 1;
+        }
+        long ifd = tiff + readInt(app1, tiff + 4, littleEndian);
+        if (ifd < tiff || ifd + 2 > app1.length) {
+            return 1;
+        }
+        int entries = readShort(app1, (int) ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                return 1;
+            }
+            if (readShort(app1, entry, littleEndian) == ORIENTATION_TAG) {
+                return readShort(app1, entry + 2, littleEndian) == TYPE_SHORT
+                        ? readShort(app1, entry + 8, littleEndian)
+                        : 1;
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return littleEndian ? b << 8 | a : a << 8 | b;
+    }
+
+    private static long readInt(byte[] data, int offset, boolean littleEndian) {
+        long high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        long low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return high << 16 | low;
+    }
+}
@@ -0,0 +1,257 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Row-oriented flips.
+ * A vertical flip is one bulk row copy per row; a horizontal flip reverses the pixel groups within
+ * each row. Both work on the raw backing arrays and walk memory in storage order. The in-place
+ * variants mutate the source raster with at most one row of scratch per band, so no second
+ * full-size image is ever allocated.
+ */
+final class FlipKernel {
+
+    private FlipKernel() {
+    }
+
+    /**
+     * Mirrors an image left to right into a new TYPE_3BYTE_BGR image.
+     *
+     * @param inputImage the image to flip
+     * @param pool pool to run row bands on, or null to run on the calling thread
+     * @return horizontally flipped image
+     */
+    static BufferedImage flipHorizontal(BufferedImage inputImage, ForkJoinPool pool) {
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        long pixels = (long) width * height;
+
+        if (inputImage.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] in = RasterKernels.bytes(inputImage);
+            int offset = RasterKernels.dataOffset(inputImage);
+            int stride = RasterKernels.scanlineStride(inputImage);
+            BandExecutor.run(pool, height, 1, pixels, (y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    int src = offset + y * stride + rowBytes - 3;
+                    int dst = y * rowBytes;
+                    for (int x = 0; x < width; x++, src -= 3, dst += 3) {
+                        out[dst] = in[src];
+                        out[dst + 1] = in[src + 1];
+                        out[dst + 2] = in[src + 2];
+                    }
+                }
+            });
+            return outputImage;
+        }
+
+        PixelReader reader = PixelReader.of(inputImage);
+        BandExecutor.run(pool, height, 1, pixels, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                int p = y * rowBytes;
+                for (int x = width - 1; x >= 0; x--, p += 3) {
+                    RasterKernels.putBgr(out, p, row[x]);
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Mirrors an image top to bottom into a new TYPE_3BYTE_BGR image.
+     *
+     * @param inputImage the image to flip
+     * @param pool pool to run row bands on, or null to run on the calling thread
+     * @return vertically flipped image
+     */
+    static BufferedImage flipVertical(BufferedImage inputImage, ForkJoinPool pool) {
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        int rowBytes = width * 3;
+        long pixels = (long) width * height;
+
+        if (inputImage.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            byte[] in = RasterKernels.bytes(inputImage);
+            int offset = RasterKernels.dataOffset(inputImage);
+            int stride = RasterKernels.scanlineStride(inputImage);
+            BandExecutor.run(pool, height, 1, pixels, (y0, y1) -> {
+                for (int y = y0; y < y1; y++) {
+                    System.arraycopy(in, offset + y * stride, out, (height - 1 - y) * rowBytes, rowBytes);
+                }
+            });
+            return outputImage;
+        }
+
+        PixelReader reader = PixelReader.of(inputImage);
+        BandExecutor.run(pool, height, 1, pixels, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                int p = (height - 1 - y) * rowBytes;
+                for (int x = 0; x < width; x++, p += 3) {
+                    RasterKernels.putBgr(out, p, row[x]);
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Mirrors an image left to right by rewriting its own raster. The image type is unchanged.
+     *
+     * @param image the image to flip
+     * @param pool pool to run row bands on, or null to run on the calling thread
+     * @return the same image instance
+     */
+    static BufferedImage flipHorizontalInPlace(BufferedImage image, ForkJoinPool pool) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        BandExecutor.Band band;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+                int pixelStride = ((ComponentSampleModel) image.getSampleModel()).getPixelStride();
+                band = (y0, y1) -> reverseByteGroups(image, pixelStride, y0, y1);
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                band = (y0, y1) -> reverseInts(image, y0, y1);
+                break;
+            default:
+                band = (y0, y1) -> reverseDataElements(image.getRaster(), y0, y1);
+                break;
+        }
+        BandExecutor.run(pool, image.getHeight(), 1, pixels, band);
+        return image;
+    }
+
+    /**
+     * Mirrors an image top to bottom by swapping its own rows. The image type is unchanged.
+     *
+     * @param image the image to flip
+     * @param pool pool to run bands of row pairs on, or null to run on the calling thread
+     * @return the same image instance
+     */
+    static BufferedImage flipVerticalInPlace(BufferedImage image, ForkJoinPool pool) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        BandExecutor.Band band;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+                int pixelStride = ((ComponentSampleModel) image.getSampleModel()).getPixelStride();
+                band = (top0, top1) -> swapByteRows(image, pixelStride, top0, top1);
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                band = (top0, top1) -> swapIntRows(image, top0, top1);
+                break;
+            default:
+                band = (top0, top1) -> swapDataElementRows(image.getRaster(), top0, top1);
+                break;
+        }
+        // Only the top half is iterated; each top row is swapped with its mirror.
+        BandExecutor.run(pool, image.getHeight() / 2, 1, pixels, band);
+        return image;
+    }
+
+    /** Reverses the order of the pixelStride-byte groups within every row of a byte raster. */
+    private static void reverseByteGroups(BufferedImage image, int pixelStride, int y0, int y1) {
+        byte[] data = RasterKernels.bytes(image);
+        int offset = RasterKernels.dataOffset(image);
+        int stride = RasterKernels.scanlineStride(image);
+        int width = image.getWidth();
+        for (int y = y0; y < y1; y++) {
+            int left = offset + y * stride;
+            int right = left + (width - 1) * pixelStride;
+            for (; left < right; left += pixelStride, right -= pixelStride) {
+                for (int k = 0; k < pixelStride; k++) {
+                    byte tmp = data[left + k];
+                    data[left + k] = data[right + k];
+                    data[right + k] = tmp;
+                }
+            }
+        }
+    }
+
+    private static void reverseInts(BufferedImage image, int y0, int y1) {
+        int[] data = RasterKernels.ints(image);
+        int offset = RasterKernels.dataOffset(image);
+        int stride = RasterKernels.scanlineStride(image);
+        int width = image.getWidth();
+        for (int y = y0; y < y1; y++) {
+            int left = offset + y * stride;
+            int right = left + width - 1;
+            for (; left < right; left++, right--) {
+                int tmp = data[left];
+                data[left] = data[right];
+                data[right] = tmp;
+            }
+        }
+    }
+
+    private static void reverseDataElements(WritableRaster raster, int y0, int y1) {
+        Object leftPixel = null;
+        Object rightPixel = null;
+        for (int y = y0; y < y1; y++) {
+            for (int left = 0, right = raster.getWidth() - 1; left < right; left++, right--) {
+                leftPixel = raster.getDataElements(left, y, leftPixel);
+                rightPixel = raster.getDataElements(right, y, rightPixel);
+                raster.setDataElements(left, y, rightPixel);
+                raster.setDataElements(right, y, leftPixel);
+            }
+        }
+    }
+
+    private static void swapByteRows(BufferedImage image, int pixelStride, int top0, int top1) {
+        byte[] data = RasterKernels.bytes(image);
+        int offset = RasterKernels.dataOffset(image);
+        int stride = RasterKernels.scanlineStride(image);
+        int rowLength = image.getWidth() * pixelStride;
+        byte[] scratch = new byte[rowLength];
+        for (int top = top0; top < top1; top++) {
+            int bottom = image.getHeight() - 1 - top;
+            int a = offset + top * stride;
+            int b = offset + bottom * stride;
+            System.arraycopy(data, a, scratch, 0, rowLength);
+            System.arraycopy(data, b, data, a, rowLength);
+            System.arraycopy(scratch, 0, data, b, rowLength);
+        }
+    }
+
+    private static void swapIntRows(BufferedImage image, int top0, int top1) {
+        int[] data = RasterKernels.ints(image);
+        int offset = RasterKernels.dataOffset(image);
+        int stride = RasterKernels.scanlineStride(image);
+        int width = image.getWidth();
+        int[] scratch = new int[width];
+        for (int top = top0; top < top1; top++) {
+            int bottom = image.getHeight() - 1 - top;
+            int a = offset + top * stride;
+            int b = offset + bottom * stride;
+            System.arraycopy(data, a, scratch, 0, width);
+            System.arraycopy(data, b, data, a, width);
+            System.arraycopy(scratch, 0, data, b, width);
+        }
+    }
+
+    private static void swapDataElementRows(WritableRaster raster, int top0, int top1) {
+        int width = raster.getWidth();
+        Object topRow = null;
+        Object bottomRow = null;
+        for (int top = top0; top < top1; top++) {
+            int bottom = raster.getHeight() - 1 - top;
+            topRow = raster.getDataElements(0, top, width, 1, topRow);
+            bottomRow = raster.getDataElements(0, bottom, width, 1, bottomRow);
+            raster.setDataElements(0, top, width, 1, bottomRow);
+            raster.setDataElements(0, bottom, width, 1, topRow);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A run of consecutive rotations, flips and crops, applied to an {@link ImageView} without touching
+ * any pixels.
+ * <p>
+ * The view composes the run into one {@link Orientation} of one source rectangle. The pixels are
+ * moved at most once, when a later stage reads through the view or when it is materialized: a
+ * chain that composes to the identity costs nothing, a pure horizontal or vertical mirror of a
+ * whole image is done in place, and everything else is one pass that copies raw pixel data in
+ * {@link RotationKernel#TILE} x TILE destination tiles, however long the chain is. The result
+ * keeps the source image type, including alpha.
+ */
+final class GeometricChain implements Pipeline.Stage {
+
+    private static final int TILE = RotationKernel.TILE;
+
+    private final List<Operation> operations;
+    private final Orientation exif;
+
+    /**
+     * Creates a run of geometric operations.
+     *
+     * @param operations geometric operations in the order they run
+     * @param exif transform that {@code auto-orient} stands for, IDENTITY when unknown
+     * @throws IllegalArgumentException if an operation is not geometric
+     */
+    GeometricChain(List<Operation> operations, Orientation exif) {
+        for (Operation operation : operations) {
+            if (operation.kind.category != Operation.Category.GEOMETRIC) {
+                throw new IllegalArgumentException(operation + " is not a geometric operation");
+            }
+        }
+        this.operations = operations;
+        this.exif = exif;
+    }
+
+    /**
+     * Applies the run lazily.
+     *
+     * @param view the image to transform
+     * @param pool unused; no pixels are touched
+     * @return the transformed view
+     */
+    @Override
+    public ImageView apply(ImageView view, ForkJoinPool pool) {
+        ImageView current = view;
+        for (Operation operation : operations) {
+            if (operation.kind == Operation.Kind.CROP) {
+                int[] region = operation.region;
+                current = current.crop(region[0], region[1], region[2], region[3]);
+            } else {
+                current = current.orient(operation.kind == Operation.Kind.AUTO_ORIENT ? exif : operation.orientation());
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Applies a transform to an image the caller owns.
+     *
+     * @param image the image to transform
+     * @param orientation the transform
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return the transformed image
+     */
+    static BufferedImage remap(BufferedImage image, Orientation orientation, ForkJoinPool pool) {
+        switch (orientation) {
+            case IDENTITY:
+                return image;
+            case FLIP_HORIZONTAL:
+                return FlipKernel.flipHorizontalInPlace(image, pool);
+            case FLIP_VERTICAL:
+                return FlipKernel.flipVerticalInPlace(image, pool);
+            default:
+                return copy(image, orientation, pool);
+        }
+    }
+
+    /**
+     * Writes a transformed copy of an image, leaving the source untouched.
+     *
+     * @param image the image to transform
+     * @param orientation the transform, which may be the identity
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return a new image of the source's type
+     */
+    static BufferedImage copy(BufferedImage image, Orientation orientation, ForkJoinPool pool) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int outWidth = orientation.transposed ? height : width;
+        int outHeight = orientation.transposed ? width : height;
+        ColorModel colorModel = image.getColorModel();
+        WritableRaster raster = image.getRaster().createCompatibleWritableRaster(outWidth, outHeight);
+        BufferedImage outputImage = new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
+
+        BandExecutor.Band band;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_BYTE_GRAY:
+                int pixelStride = ((ComponentSampleModel) image.getSampleModel()).getPixelStride();
+                band = (y0, y1) -> remapBytes(image, outputImage, orientation, pixelStride, y0, y1);
+                break;
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                band = (y0, y1) -> remapInts(image, outputImage, orientation, y0, y1);
+                break;
+            default:
+                band = (y0, y1) -> remapDataElements(image.getRaster(), raster, orientation, y0, y1);
+                break;
+        }
+        BandExecutor.run(pool, outHeight, TILE, (long) width * height, band);
+        return outputImage;
+    }
+
+    /**
+     * Returns how far the source index moves for one step right in the destination. Along a
+     * destination row a transposed remap walks down a source column, otherwise along a source row.
+     */
+    private static int sourceStep(Orientation orientation, int stride, int pixelStride) {
+        if (orientation.transposed) {
+            return orientation.mirrorY ? -stride : stride;
+        }
+        return orientation.mirrorX ? -pixelStride : pixelStride;
+    }
+
+    /**
+     * Copies destination rows y0..y1 tile by tile between the backing byte arrays. Within a tile of a
+     * transposed remap the TILE source rows involved stay in cache for the whole tile.
+     */
+    private static void remapBytes(BufferedImage source, BufferedImage target, Orientation orientation,
+                                   int pixelStride, int y0, int y1) {
+        byte[] in = RasterKernels.bytes(source);
+        byte[] out = RasterKernels.bytes(target);
+        int offset = RasterKernels.dataOffset(source);
+        int stride = RasterKernels.scanlineStride(source);
+        int outStride = RasterKernels.scanlineStride(target);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int outWidth = target.getWidth();
+        int step = sourceStep(orientation, stride, pixelStride);
+
+        for (int ty = y0; ty < y1; ty += TILE) {
+            int tyEnd = Math.min(ty + TILE, y1);
+            for (int tx = 0; tx < outWidth; tx += TILE) {
+                int txEnd = Math.min(tx + TILE, outWidth);
+                for (int y = ty; y < tyEnd; y++) {
+                    int src = offset + orientation.sourceY(tx, y, height) * stride
+                            + orientation.sourceX(tx, y, width) * pixelStride;
+                    int dst = y * outStride + tx * pixelStride;
+                    for (int x = tx; x < txEnd; x++, src += step, dst += pixelStride) {
+                        for (int k = 0; k < pixelStride; k++) {
+                            out[dst + k] = in[src + k];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void remapInts(BufferedImage source, BufferedImage target, Orientation orientation,
+                                  int y0, int y1) {
+        int[] in = RasterKernels.ints(source);
+        int[] out = RasterKernels.ints(target);
+        int offset = RasterKernels.dataOffset(source);
+        int stride = RasterKernels.scanlineStride(source);
+        int outStride = RasterKernels.scanlineStride(target);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int outWidth = target.getWidth();
+        int step = sourceStep(orientation, stride, 1);
+
+        for (int ty = y0; ty < y1; ty += TILE) {
+            int tyEnd = Math.min(ty + TILE, y1);
+            for (int tx = 0; tx < outWidth; tx += TILE) {
+                int txEnd = Math.min(tx + TILE, outWidth);
+                for (int y = ty; y < tyEnd; y++) {
+                    int src = offset + orientation.sourceY(tx, y, height) * stride + orientation.sourceX(tx, y, width);
+                    int dst = y * outStride + tx;
+                    for (int x = tx; x < txEnd; x++, src += step) {
+                        out[dst++] = in[src];
+                    }
+                }
+            }
+        }
+    }
+
+    /** Fallback for other layouts: each destination row is one source row or column, read in bulk. */
+    private static void remapDataElements(WritableRaster source, WritableRaster target, Orientation orientation,
+                                          int y0, int y1) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int outWidth = target.getWidth();
+        int elements = source.getNumDataElements();
+        Object line = null;
+        Object row = null;
+        for (int y = y0; y < y1; y++) {
+            if (orientation.transposed) {
+                line = source.getDataElements(orientation.sourceX(0, y, width), 0, 1, height, line);
+            } else {
+                line = source.getDataElements(0, orientation.sourceY(0, y, height), width, 1, line);
+            }
+            row = target.getDataElements(0, y, outWidth, 1, row);
+            for (int x = 0; x < outWidth; x++) {
+                int index = orientation.transposed
+                        ? orientation.sourceY(x, y, height)
+                        : orientation.sourceX(x, y, width);
+                System.arraycopy(line, index * elements, row, x * elements, elements);
+            }
+            target.setDataElements(0, y, outWidth, 1, row);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return operations.toString();
+    }
+}
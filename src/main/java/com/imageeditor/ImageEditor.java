@@ -1,11 +1,11 @@
 package com.imageeditor;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 import javax.imageio.ImageIO;
 
 /**
@@ -37,15 +37,19 @@ public class ImageEditor {
      * @return grayscale version of the image
      */
     public static BufferedImage convertToGrayscale(BufferedImage inputImage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                outputImage.setRGB(j, i, inputImage.getRGB(j, i));
-            }
-        }
-        return outputImage;
+        return convertToGrayscale(inputImage, null);
+    }
+
+    /**
+     * Converts an image to grayscale.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the color image to convert
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return grayscale version of the image
+     */
+    public static BufferedImage convertToGrayscale(BufferedImage inputImage, ForkJoinPool pool) {
+        return RasterKernels.grayscale(inputImage, pool);
     }
 
     /**
@@ -56,30 +60,20 @@ public class ImageEditor {
      * @return brightness-adjusted image
      */
     public static BufferedImage adjustBrightness(BufferedImage inputImage, int percentage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                Color pixel = new Color(inputImage.getRGB(j, i));
-                int red = pixel.getRed();
-                int green = pixel.getGreen();
-                int blue = pixel.getBlue();
-
-                red += (red * percentage) / 100;
-                green += (green * percentage) / 100;
-                blue += (blue * percentage) / 100;
-
-                red = Math.min(255, Math.max(0, red));
-                green = Math.min(255, Math.max(0, green));
-                blue = Math.min(255, Math.max(0, blue));
+        return adjustBrightness(inputImage, percentage, null);
+    }
 
-                Color newPixel = new Color(red, green, blue);
-                result.setRGB(j, i, newPixel.getRGB());
-            }
-        }
-        return result;
+    /**
+     * Adjusts the brightness of an image by a percentage.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to adjust
+     * @param percentage brightness adjustment (-100 to darken, +100 to brighten)
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return brightness-adjusted image
+     */
+    public static BufferedImage adjustBrightness(BufferedImage inputImage, int percentage, ForkJoinPool pool) {
+        return BrightnessLut.apply(inputImage, percentage, pool);
     }
 
     /**
@@ -89,25 +83,19 @@ public class ImageEditor {
      * @return rotated image
      */
     public static BufferedImage rotateRight(BufferedImage inputImage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
-
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                rotatedImage.setRGB(i, j, inputImage.getRGB(j, i));
-            }
-        }
+        return rotateRight(inputImage, null);
+    }
 
-        int index = rotatedImage.getWidth() - 1;
-        for (int i = 0; i < rotatedImage.getHeight(); i++) {
-            for (int j = 0; j < rotatedImage.getWidth() / 2; j++) {
-                Color temp = new Color(rotatedImage.getRGB(j, i));
-                rotatedImage.setRGB(j, i, rotatedImage.getRGB(index - j, i));
-                rotatedImage.setRGB(index - j, i, temp.getRGB());
-            }
-        }
-        return rotatedImage;
+    /**
+     * Rotates an image 90 degrees clockwise.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to rotate
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return rotated image
+     */
+    public static BufferedImage rotateRight(BufferedImage inputImage, ForkJoinPool pool) {
+        return RotationKernel.rotateRight(inputImage, pool);
     }
 
     /**
@@ -117,25 +105,41 @@ public class ImageEditor {
      * @return rotated image
      */
     public static BufferedImage rotateLeft(BufferedImage inputImage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+        return rotateLeft(inputImage, null);
+    }
 
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                rotatedImage.setRGB(i, j, inputImage.getRGB(j, i));
-            }
-        }
+    /**
+     * Rotates an image 90 degrees counter-clockwise.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to rotate
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return rotated image
+     */
+    public static BufferedImage rotateLeft(BufferedImage inputImage, ForkJoinPool pool) {
+        return RotationKernel.rotateLeft(inputImage, pool);
+    }
 
-        int index = rotatedImage.getHeight() - 1;
-        for (int j = 0; j < rotatedImage.getWidth(); j++) {
-            for (int i = 0; i < rotatedImage.getHeight() / 2; i++) {
-                Color temp = new Color(rotatedImage.getRGB(j, i));
-                rotatedImage.setRGB(j, i, rotatedImage.getRGB(j, index - i));
-                rotatedImage.setRGB(j, index - i, temp.getRGB());
-            }
-        }
-        return rotatedImage;
+    /**
+     * Rotates an image 180 degrees.
+     *
+     * @param inputImage the image to rotate
+     * @return rotated image
+     */
+    public static BufferedImage rotate180(BufferedImage inputImage) {
+        return rotate180(inputImage, null);
+    }
+
+    /**
+     * Rotates an image 180 degrees.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to rotate
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return rotated image
+     */
+    public static BufferedImage rotate180(BufferedImage inputImage, ForkJoinPool pool) {
+        return RotationKernel.rotate180(inputImage, pool);
     }
 
     /**
@@ -145,16 +149,19 @@ public class ImageEditor {
      * @return horizontally flipped image
      */
     public static BufferedImage flipHorizontal(BufferedImage inputImage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        return flipHorizontal(inputImage, null);
+    }
 
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                outputImage.setRGB(j, i, inputImage.getRGB(width - j - 1, i));
-            }
-        }
-        return outputImage;
+    /**
+     * Flips an image horizontally (left-right mirror).
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to flip
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return horizontally flipped image
+     */
+    public static BufferedImage flipHorizontal(BufferedImage inputImage, ForkJoinPool pool) {
+        return FlipKernel.flipHorizontal(inputImage, pool);
     }
 
     /**
@@ -164,83 +171,111 @@ public class ImageEditor {
      * @return vertically flipped image
      */
     public static BufferedImage flipVertical(BufferedImage inputImage) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        return flipVertical(inputImage, null);
+    }
 
-        for (int j = 0; j < width; j++) {
-            for (int i = 0; i < height; i++) {
-                outputImage.setRGB(j, i, inputImage.getRGB(j, height - i - 1));
-            }
-        }
-        return outputImage;
+    /**
+     * Flips an image vertically (top-bottom mirror).
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to flip
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return vertically flipped image
+     */
+    public static BufferedImage flipVertical(BufferedImage inputImage, ForkJoinPool pool) {
+        return FlipKernel.flipVertical(inputImage, pool);
+    }
+
+    /**
+     * Flips an image horizontally by rewriting its own pixels, without allocating a second image.
+     * The image keeps its type.
+     *
+     * @param image the image to flip; it is modified
+     * @return the same image instance
+     */
+    public static BufferedImage flipHorizontalInPlace(BufferedImage image) {
+        return flipHorizontalInPlace(image, null);
+    }
+
+    /**
+     * Flips an image horizontally by rewriting its own pixels, without allocating a second image.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param image the image to flip; it is modified
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the same image instance
+     */
+    public static BufferedImage flipHorizontalInPlace(BufferedImage image, ForkJoinPool pool) {
+        return FlipKernel.flipHorizontalInPlace(image, pool);
+    }
+
+    /**
+     * Flips an image vertically by swapping its own rows, without allocating a second image.
+     * The image keeps its type.
+     *
+     * @param image the image to flip; it is modified
+     * @return the same image instance
+     */
+    public static BufferedImage flipVerticalInPlace(BufferedImage image) {
+        return flipVerticalInPlace(image, null);
+    }
+
+    /**
+     * Flips an image vertically by swapping its own rows, without allocating a second image.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param image the image to flip; it is modified
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the same image instance
+     */
+    public static BufferedImage flipVerticalInPlace(BufferedImage image, ForkJoinPool pool) {
+        return FlipKernel.flipVerticalInPlace(image, pool);
     }
 
     /**
      * Applies a pixelated blur effect to an image.
+     * Blocks cut off by the right or bottom edge are averaged over the pixels they cover.
      *
      * @param inputImage the image to blur
      * @param blockSize the size of pixel blocks for averaging
      * @return blurred image
+     * @throws IllegalArgumentException if blockSize is less than 1
      */
     public static BufferedImage applyBlur(BufferedImage inputImage, int blockSize) {
-        int height = inputImage.getHeight();
-        int width = inputImage.getWidth();
-        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-
-        for (int i = 0; i < height / blockSize; i++) {
-            for (int j = 0; j < width / blockSize; j++) {
-                int red = 0;
-                int green = 0;
-                int blue = 0;
-
-                for (int k = i * blockSize; k < i * blockSize + blockSize; k++) {
-                    for (int l = j * blockSize; l < j * blockSize + blockSize; l++) {
-                        Color pixel = new Color(inputImage.getRGB(l, k));
-                        red += pixel.getRed();
-                        blue += pixel.getBlue();
-                        green += pixel.getGreen();
-                    }
-                }
-
-                int avgRed = red / (blockSize * blockSize);
-                int avgGreen = green / (blockSize * blockSize);
-                int avgBlue = blue / (blockSize * blockSize);
-
-                for (int k = i * blockSize; k < i * blockSize + blockSize; k++) {
-                    for (int l = j * blockSize; l < j * blockSize + blockSize; l++) {
-                        Color newPixel = new Color(avgRed, avgGreen, avgBlue);
-                        outputImage.setRGB(l, k, newPixel.getRGB());
-                    }
-                }
-            }
-        }
-        return outputImage;
+        return applyBlur(inputImage, blockSize, null);
+    }
+
+    /**
+     * Applies a pixelated blur effect to an image.
+     * Large images are split into bands that run on the given pool.
+     *
+     * @param inputImage the image to blur
+     * @param blockSize the size of pixel blocks for averaging
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return blurred image
+     * @throws IllegalArgumentException if blockSize is less than 1
+     */
+    public static BufferedImage applyBlur(BufferedImage inputImage, int blockSize, ForkJoinPool pool) {
+        return SummedAreaBlur.apply(inputImage, blockSize, pool);
+    }
+
+    /**
+     * The decoded input is not reused after the operation, so flips can mutate it instead of doubling
+     * memory. Only types the JPEG encoder accepts are flipped in place; any other type, such as one with
+     * alpha or 16-bit gray, still gets the TYPE_3BYTE_BGR copy.
+     */
+    static boolean canFlipInPlace(BufferedImage inputImage) {
+        int type = inputImage.getType();
+        return type == BufferedImage.TYPE_3BYTE_BGR
+                || type == BufferedImage.TYPE_INT_RGB
+                || type == BufferedImage.TYPE_BYTE_GRAY;
     }
 
     /**
      * Displays the help menu with available operations.
      */
     public static void printHelp() {
-        System.out.println("Image Editor - Command Line Image Processing Tool");
-        System.out.println("================================================");
-        System.out.println();
-        System.out.println("Usage: java -jar image-editor.jar [options]");
-        System.out.println();
-        System.out.println("Interactive Mode (no arguments):");
-        System.out.println("  Run without arguments to enter interactive mode.");
-        System.out.println();
-        System.out.println("Available Operations:");
-        System.out.println("  1 - Print pixel RGB values");
-        System.out.println("  2 - Convert to grayscale");
-        System.out.println("  3 - Adjust brightness (percentage)");
-        System.out.println("  4 - Rotate right (90 degrees clockwise)");
-        System.out.println("  5 - Rotate left (90 degrees counter-clockwise)");
-        System.out.println("  6 - Flip horizontal (left-right mirror)");
-        System.out.println("  7 - Flip vertical (top-bottom mirror)");
-        System.out.println("  8 - Apply blur effect");
-        System.out.println();
-        System.out.println("Output: Results are saved to 'output.jpg'");
+        Usage.print();
     }
 
     /**
@@ -250,11 +285,30 @@ public class ImageEditor {
      * @throws IOException if image file operations fail
      */
     public static void main(String[] args) throws IOException {
-        if (args.length > 0 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
-            printHelp();
-            return;
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
         }
+    }
+
+    /**
+     * Parses the command line and runs either a pipeline or the interactive mode.
+     *
+     * @param args command line arguments
+     * @return process exit status, 0 on success
+     * @throws IOException if image file operations fail in interactive mode
+     */
+    static int run(String[] args) throws IOException {
+        return CommandLine.run(args);
+    }
 
+    /**
+     * Prompts for a file and an operation and writes the result to output.jpg.
+     *
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @throws IOException if the image cannot be read or written
+     */
+    static void runInteractive(ForkJoinPool pool) throws IOException {
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter the filename: ");
         String filename = scanner.next();
@@ -282,6 +336,7 @@ public class ImageEditor {
         System.out.println("6 - Flip horizontal");
         System.out.println("7 - Flip vertical");
         System.out.println("8 - Apply blur");
+        System.out.println("9 - Rotate 180 degrees");
         System.out.print("\nEnter choice: ");
 
         int choice = scanner.nextInt();
@@ -292,37 +347,43 @@ public class ImageEditor {
                 printPixelValue(inputImage);
                 break;
             case 2:
-                result = convertToGrayscale(inputImage);
+                result = convertToGrayscale(inputImage, pool);
                 break;
             case 3:
                 System.out.print("Enter brightness percentage (-100 to 100): ");
                 int brightness = scanner.nextInt();
-                result = adjustBrightness(inputImage, brightness);
+                result = adjustBrightness(inputImage, brightness, pool);
                 break;
             case 4:
-                result = rotateRight(inputImage);
+                result = rotateRight(inputImage, pool);
                 break;
             case 5:
-                result = rotateLeft(inputImage);
+                result = rotateLeft(inputImage, pool);
                 break;
             case 6:
-                result = flipHorizontal(inputImage);
+                result = canFlipInPlace(inputImage)
+                        ? flipHorizontalInPlace(inputImage, pool)
+                        : flipHorizontal(inputImage, pool);
                 break;
             case 7:
-                result = flipVertical(inputImage);
+                result = canFlipInPlace(inputImage)
+                        ? flipVerticalInPlace(inputImage, pool)
+                        : flipVertical(inputImage, pool);
                 break;
             case 8:
                 System.out.print("Enter blur block size (e.g., 5): ");
                 int blockSize = scanner.nextInt();
-                result = applyBlur(inputImage, blockSize);
+                result = applyBlur(inputImage, blockSize, pool);
+                break;
+            case 9:
+                result = rotate180(inputImage, pool);
                 break;
             default:
                 System.err.println("Invalid choice: " + choice);
         }
 
         if (result != null) {
-            File outputFile = new File("output.jpg");
-            ImageIO.write(result, "jpg", outputFile);
+            Pipeline.write(result, new File("output.jpg"), "jpg");
             System.out.println("Output saved to: output.jpg");
         }
 
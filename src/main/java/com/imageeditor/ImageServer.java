@@ -0,0 +1,444 @@
+package com.imageeditor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Long-running HTTP front end for {@link Pipeline}, so decoders, kernels and the JIT stay warm
+ * across requests.
+ * <pre>
+ * POST /process?op=rotate-right&amp;op=blur:8&amp;format=png   body: encoded image
+ * POST /probe?op=blur:8&amp;format=png                        body: encoded image
+ * GET  /health
+ * GET  /metrics
+ * </pre>
+ * {@code op} is repeatable and runs in order; {@code format} defaults to the format of the upload.
+ * The response is the encoded result, written to the connection as it is encoded. {@code /probe}
+ * takes the same parameters but reads only the image header, and answers with the
+ * {@linkplain ImageProbe probe} as JSON: the image's size and colour type and the estimated memory
+ * and cost of the operations.
+ * <p>
+ * With a {@link ResultCache}, the upload is read in full and hashed first; a hit is answered from
+ * the cache without decoding, and a miss is encoded in memory, cached and sent. Requests that miss
+ * on the same key while it is being processed wait for that result rather than processing it again;
+ * see {@link SingleFlight}. The {@code X-Cache} response header says {@code HIT}, {@code MISS} or
+ * {@code COALESCED}, and {@code /metrics} exports the cache statistics for Prometheus. With a
+ * {@link DecodedCache}, an upload that comes back with different operations is not decoded again.
+ * <p>
+ * Requests are handled by a fixed number of worker threads that decode, process and encode. A
+ * connection that arrives while all of them are busy waits with its body unread, so memory is
+ * bounded by the number of workers, not by the number of clients. With an
+ * {@link AdmissionController}, the upload is read into memory and its size taken from the header;
+ * the request then waits, up to {@link #ADMISSION_WAIT}, until the memory its pipeline needs fits
+ * the budget. Past that it gets a 503 with a {@code Retry-After} header, and an image that could
+ * never fit gets a 413. Uploads over {@link #MAX_BODY}
+ * bytes are refused. Image data never touches the disk: ImageIO's file cache is bypassed.
+ */
+final class ImageServer {
+
+    /** Largest accepted upload, in bytes. */
+    static final int MAX_BODY = 64 << 20;
+
+    /** How long a request waits for room in the memory budget before it is turned away. */
+    static final Duration ADMISSION_WAIT = Duration.ofSeconds(10);
+
+    /** When a client turned away for lack of memory is told to retry. */
+    static final int RETRY_AFTER_SECONDS = 1;
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final boolean draft;
+    private final ForkJoinPool pool;
+    private final ResultCache cache;
+    private final DecodedCache decodedCache;
+    private final AdmissionController admission;
+    private final SingleFlight<String, byte[]> flights = new SingleFlight<>();
+
+    /**
+     * Creates a server bound to the given address. It does not accept requests until started.
+     *
+     * @param address the address to listen on; port 0 picks a free port
+     * @param threads worker threads, at least 1
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @param pool the pool kernels run on, or null to run on the worker threads
+     * @param cache the cache for encoded results, or null to process every request
+     * @param decodedCache the cache for decoded uploads, or null to decode every request
+     * @param admission the memory budget requests wait for before decoding, or null to admit every request
+     * @throws IOException if the address cannot be bound
+     */
+    ImageServer(InetSocketAddress address, int threads, boolean draft, ForkJoinPool pool, ResultCache cache,
+            DecodedCache decodedCache, AdmissionController admission) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads,
+                task -> new Thread(task, "http-worker-" + count.incrementAndGet()));
+        this.draft = draft;
+        this.pool = pool;
+        this.cache = cache;
+        this.decodedCache = decodedCache;
+        this.admission = admission;
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(workers);
+        server.createContext("/process", exchange -> handle(exchange, this::process));
+        server.createContext("/probe", exchange -> handle(exchange, this::probe));
+        server.createContext("/health", exchange -> handle(exchange, e -> reply(e, 200, "ok")));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+    }
+
+    /** Starts accepting requests. */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     */
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits up to {@code seconds} for those in progress, then shuts down.
+     *
+     * @param seconds how long to wait for requests in progress
+     */
+    void stop(int seconds) {
+        server.stop(seconds);
+        workers.shutdown();
+    }
+
+    private static void handle(HttpExchange exchange, HttpHandler handler) throws IOException {
+        try (exchange) {
+            handler.handle(exchange);
+        } catch (RuntimeException e) {
+            // The worker must survive a failed request; the client sees a 500 unless the response
+            // has already started. Errors such as running out of memory leave the JVM in an unknown
+            // state and are left to propagate.
+            System.err.println("Error: " + exchange.getRequestURI() + " - " + e);
+            if (exchange.getResponseCode() < 0) {
+                reply(exchange, 500, "Error: " + e);
+            }
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        StringBuilder out = new StringBuilder();
+        if (cache != null) {
+            cache.writeMetrics(out);
+        }
+        if (decodedCache != null) {
+            decodedCache.writeMetrics(out);
+        }
+        if (admission != null) {
+            admission.writeMetrics(out);
+        }
+        if (cache != null) {
+            Metrics.metric(out, "imageeditor_coalesced_requests_total", "counter",
+                    "Requests that waited for an identical request in progress instead of processing",
+                    flights.coalesced());
+        }
+        byte[] bytes = out.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            reply(exchange, 405, "Error: Use POST with the image as the request body");
+            return;
+        }
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null && parseLong(length) > MAX_BODY) {
+            reply(exchange, 413, "Error: Images are limited to " + MAX_BODY + " bytes");
+            return;
+        }
+        AdmissionController.Permit permit = null;
+        try {
+            List<String> operations = new ArrayList<>();
+            String format = null;
+            String status = null;
+            ByteBuffer cached = null;
+            BufferedImage result = null;
+            try {
+                format = parameters(exchange, operations);
+                Pipeline pipeline = new Pipeline(operations);
+                InputStream upload = new LimitedInputStream(exchange.getRequestBody(), MAX_BODY);
+                byte[] input = null;
+                if (cache != null || decodedCache != null || admission != null) {
+                    try (upload) {
+                        input = upload.readAllBytes();
+                    }
+                }
+                if (cache != null) {
+                    if (format == null) {
+                        format = formatOf(input);
+                    }
+                    String key = ResultCache.key(input, pipeline, format, draft);
+                    cached = cache.get(key);
+                    status = "HIT";
+                    if (cached == null) {
+                        boolean[] computed = new boolean[1];
+                        byte[] source = input;
+                        String resultFormat = format;
+                        byte[] encoded = flights.run(key, () -> {
+                            computed[0] = true;
+                            AdmissionController.Permit admitted = admit(pipeline, source);
+                            try {
+                                BufferedImage image = pipeline.apply(decode(null, source, pipeline), pool);
+                                byte[] bytes = Pipeline.encode(image, resultFormat);
+                                cache.put(key, bytes);
+                                return bytes;
+                            } finally {
+                                if (admitted != null) {
+                                    admitted.close();
+                                }
+                            }
+                        });
+                        cached = ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+                        status = computed[0] ? "MISS" : "COALESCED";
+                    }
+                } else {
+                    permit = admit(pipeline, input);
+                    Pipeline.Decoded decoded = decode(upload, input, pipeline);
+                    if (format == null) {
+                        format = decoded.format;
+                    }
+                    result = Pipeline.encodable(pipeline.apply(decoded, pool), format);
+                    if (result == null) {
+                        throw new IllegalArgumentException("Cannot encode this image as " + format);
+                    }
+                }
+            } catch (AdmissionController.Rejected e) {
+                if (e.retryable) {
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                }
+                reply(exchange, e.retryable ? 503 : 413, "Error: " + e.getMessage());
+                return;
+            } catch (IllegalArgumentException | IOException e) {
+                reply(exchange, 400, "Error: " + e.getMessage());
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", contentType(format));
+            if (cached != null) {
+                exchange.getResponseHeaders().set("X-Cache", status);
+                exchange.sendResponseHeaders(200, cached.remaining());
+                try (WritableByteChannel body = Channels.newChannel(exchange.getResponseBody())) {
+                    while (cached.hasRemaining()) {
+                        body.write(cached);
+                    }
+                }
+                return;
+            }
+
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            // Length 0 selects chunked encoding, so the response goes out as the encoder produces it.
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody();
+                    ImageOutputStream out = new MemoryCacheImageOutputStream(body)) {
+                writer.setOutput(out);
+                writer.write(result);
+            } finally {
+                writer.dispose();
+            }
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+        }
+    }
+
+    private void probe(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            reply(exchange, 405, "Error: Use POST with the image as the request body");
+            return;
+        }
+        List<String> operations = new ArrayList<>();
+        String json;
+        try (InputStream body = new LimitedInputStream(exchange.getRequestBody(), MAX_BODY);
+                ImageInputStream stream = new MemoryCacheImageInputStream(body)) {
+            String format = parameters(exchange, operations);
+            json = ImageProbe.of(stream, "request body").toJson(null, new Pipeline(operations), format, draft);
+        } catch (IllegalArgumentException | IOException e) {
+            reply(exchange, 400, "Error: " + e.getMessage());
+            return;
+        }
+        byte[] bytes = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * Reads the {@code op} parameters into {@code operations} and returns the {@code format}
+     * parameter, or null if there is none.
+     */
+    private static String parameters(HttpExchange exchange, List<String> operations) {
+        String format = null;
+        for (String parameter : query(exchange)) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            if ("op".equals(name)) {
+                operations.add(value);
+            } else if ("format".equals(name)) {
+                format = value.toLowerCase(Locale.ROOT);
+            } else {
+                throw new IllegalArgumentException("Unknown parameter - " + name);
+            }
+        }
+        if (format != null && !ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            throw new IllegalArgumentException("Unsupported output format - " + format);
+        }
+        return format;
+    }
+
+    /** Waits until the upload fits the memory budget, if there is one, reading its size from the header. */
+    private AdmissionController.Permit admit(Pipeline pipeline, byte[] input) throws IOException {
+        if (admission == null) {
+            return null;
+        }
+        ImageProbe probe;
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(input))) {
+            probe = ImageProbe.of(stream, "request body");
+        }
+        return admission.acquire(probe.memory(pipeline, draft));
+    }
+
+    /** Decodes an upload, from the bytes already read if there are any, else from the stream. */
+    private Pipeline.Decoded decode(InputStream upload, byte[] input, Pipeline pipeline) throws IOException {
+        if (decodedCache != null) {
+            return decodedCache.decode(input, "request body", pipeline, draft);
+        }
+        try (InputStream body = input == null ? upload : new ByteArrayInputStream(input);
+                MemoryCacheImageInputStream stream = new MemoryCacheImageInputStream(body)) {
+            return pipeline.decode(stream, "request body", draft);
+        }
+    }
+
+    /** Returns the format of an encoded image without decoding it. */
+    private static String formatOf(byte[] input) throws IOException {
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(input))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Could not read image file - request body");
+            }
+            return readers.next().getFormatName().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static String contentType(String format) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        String[] types = writers.hasNext() ? writers.next().getOriginatingProvider().getMIMETypes() : null;
+        return types != null && types.length > 0 ? types[0] : "application/octet-stream";
+    }
+
+    private static List<String> query(HttpExchange exchange) {
+        String raw = exchange.getRequestURI().getRawQuery();
+        List<String> parameters = new ArrayList<>();
+        if (raw != null) {
+            for (String parameter : raw.split("&")) {
+                if (!parameter.isEmpty()) {
+                    parameters.add(URLDecoder.decode(parameter, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void reply(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /** Fails a read once more than {@code limit} bytes have come through, for chunked uploads. */
+    private static final class LimitedInputStream extends InputStream {
+
+        private final InputStream in;
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = in.read(buffer, offset, length);
+            if (count > 0) {
+                consumed(count);
+            }
+            return count;
+        }
+
+        private void consumed(int count) throws IOException {
+            remaining -= count;
+            if (remaining < 0) {
+                throw new IOException("Images are limited to " + MAX_BODY + " bytes");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
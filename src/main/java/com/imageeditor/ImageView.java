@@ -0,0 +1,194 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A lazily transformed image: a rectangle of a source image seen through one {@link Orientation}.
+ * <p>
+ * Flips, quarter turns and crops only change the rectangle and the orientation, so they allocate
+ * nothing and touch no pixels. Kernels read the transformed pixels through {@link #reader()}, which
+ * maps every destination row to a source row or column, and the view is copied into contiguous
+ * memory only by {@link #materialize(ForkJoinPool)}, e.g. right before encoding. Cropping an
+ * oriented view crops the source rectangle with the same orientation, because mirroring within a
+ * sub-rectangle lands on the same source pixels as mirroring within the whole.
+ */
+final class ImageView {
+
+    private final BufferedImage source;
+    private final int left;
+    private final int top;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final Orientation orientation;
+
+    private ImageView(BufferedImage source, int left, int top, int sourceWidth, int sourceHeight,
+                      Orientation orientation) {
+        this.source = source;
+        this.left = left;
+        this.top = top;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.orientation = orientation;
+    }
+
+    /**
+     * Wraps an image without transforming it.
+     *
+     * @param image the image
+     * @return a view of the whole image
+     */
+    static ImageView of(BufferedImage image) {
+        return new ImageView(image, 0, 0, image.getWidth(), image.getHeight(), Orientation.IDENTITY);
+    }
+
+    /**
+     * Returns the width of the transformed image.
+     *
+     * @return width in pixels
+     */
+    int width() {
+        return orientation.transposed ? sourceHeight : sourceWidth;
+    }
+
+    /**
+     * Returns the height of the transformed image.
+     *
+     * @return height in pixels
+     */
+    int height() {
+        return orientation.transposed ? sourceWidth : sourceHeight;
+    }
+
+    /**
+     * Tells whether the view is the whole source image, untransformed.
+     *
+     * @return true if {@link #source()} can be used as is
+     */
+    boolean isPlain() {
+        return orientation == Orientation.IDENTITY && left == 0 && top == 0
+                && sourceWidth == source.getWidth() && sourceHeight == source.getHeight();
+    }
+
+    /**
+     * Returns the image the view reads from.
+     *
+     * @return the untransformed source
+     */
+    BufferedImage source() {
+        return source;
+    }
+
+    /**
+     * Applies a rotation or flip on top of this view.
+     *
+     * @param next the transform to apply
+     * @return the transformed view
+     */
+    ImageView orient(Orientation next) {
+        return new ImageView(source, left, top, sourceWidth, sourceHeight, orientation.then(next));
+    }
+
+    /**
+     * Restricts the view to a rectangle of its transformed coordinates.
+     *
+     * @param x left edge
+     * @param y top edge
+     * @param width rectangle width
+     * @param height rectangle height
+     * @return the cropped view
+     * @throws IllegalArgumentException if the rectangle is empty or not inside the view
+     */
+    ImageView crop(int x, int y, int width, int height) {
+        if (width < 1 || height < 1 || x < 0 || y < 0 || x > width() - width || y > height() - height) {
+            throw new IllegalArgumentException("Crop " + width + "x" + height + "+" + x + "+" + y
+                    + " is outside the " + width() + "x" + height() + " image");
+        }
+        int x0 = orientation.sourceX(x, y, sourceWidth);
+        int y0 = orientation.sourceY(x, y, sourceHeight);
+        int x1 = orientation.sourceX(x + width - 1, y + height - 1, sourceWidth);
+        int y1 = orientation.sourceY(x + width - 1, y + height - 1, sourceHeight);
+        return new ImageView(source, left + Math.min(x0, x1), top + Math.min(y0, y1),
+                Math.abs(x1 - x0) + 1, Math.abs(y1 - y0) + 1, orientation);
+    }
+
+    /**
+     * Returns a reader over the transformed pixels.
+     *
+     * @return a reader of {@link #width()} x {@link #height()} pixels
+     */
+    PixelReader reader() {
+        PixelReader base = PixelReader.of(source);
+        return isPlain() ? base : new Remapped(base);
+    }
+
+    /**
+     * Copies the view into contiguous memory in one pass. A view of the whole source is handed to
+     * {@link GeometricChain#remap}, so the untransformed source is returned as is and pure flips are
+     * done in place; the caller must own the source. A cropped view is always copied, so the result
+     * does not keep the rest of the source alive.
+     *
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return the transformed image, of the source's type
+     */
+    BufferedImage materialize(ForkJoinPool pool) {
+        if (left == 0 && top == 0 && sourceWidth == source.getWidth() && sourceHeight == source.getHeight()) {
+            return GeometricChain.remap(source, orientation, pool);
+        }
+        return copy(pool);
+    }
+
+    /**
+     * Copies the view into a new image in one pass, leaving the source untouched even when the view
+     * covers all of it.
+     *
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return the transformed image, of the source's type
+     */
+    BufferedImage copy(ForkJoinPool pool) {
+        return GeometricChain.copy(source.getSubimage(left, top, sourceWidth, sourceHeight), orientation, pool);
+    }
+
+    /** Maps each requested row back to the source row or column it comes from. */
+    private final class Remapped extends PixelReader {
+        private final PixelReader base;
+
+        Remapped(PixelReader base) {
+            super(width(), height());
+            this.base = base;
+        }
+
+        @Override
+        void readSpan(int x, int y, int length, int[] rgb) {
+            if (!orientation.transposed) {
+                int sy = top + orientation.sourceY(x, y, sourceHeight);
+                if (orientation.mirrorX) {
+                    base.readSpan(left + orientation.sourceX(x + length - 1, y, sourceWidth), sy, length, rgb);
+                    reverse(rgb, length);
+                } else {
+                    base.readSpan(left + orientation.sourceX(x, y, sourceWidth), sy, length, rgb);
+                }
+                return;
+            }
+            // A transposed row is a source column.
+            int sx = left + orientation.sourceX(x, y, sourceWidth);
+            for (int i = 0; i < length; i++) {
+                rgb[i] = base.getRGB(sx, top + orientation.sourceY(x + i, y, sourceHeight));
+            }
+        }
+
+        @Override
+        int getRGB(int x, int y) {
+            return base.getRGB(left + orientation.sourceX(x, y, sourceWidth),
+                    top + orientation.sourceY(x, y, sourceHeight));
+        }
+
+        private void reverse(int[] rgb, int length) {
+            for (int i = 0, j = length - 1; i < j; i++, j--) {
+                int tmp = rgb[i];
+                rgb[i] = rgb[j];
+                rgb[j] = tmp;
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.imageeditor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON for one-object-per-line files: parsing a line into maps, lists, strings, doubles,
+ * booleans and nulls, and quoting strings for output. The jar has no runtime dependencies and this
+ * keeps it that way.
+ */
+final class Json {
+
+    /** Deepest nesting of objects and arrays accepted, so a hostile line cannot exhaust the stack. */
+    static final int MAX_DEPTH = 64;
+
+    private final String text;
+    private int position;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON object.
+     *
+     * @param text the JSON text, e.g. one line of a JSONL file
+     * @return the members in document order
+     * @throws IllegalArgumentException if the text is not a single JSON object
+     */
+    static Map<String, Object> parseObject(String text) {
+        Json json = new Json(text);
+        json.skipWhitespace();
+        if (json.peek() != '{') {
+            throw json.error("Expected an object");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) json.value();
+        json.skipWhitespace();
+        if (json.position < text.length()) {
+            throw json.error("Unexpected trailing characters");
+        }
+        return object;
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     *
+     * @param value the string, or null
+     * @return the literal, or {@code null}
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * Writes a parsed scalar back as JSON: strings quoted, whole numbers without a fraction.
+     *
+     * @param value a string, finite number, boolean or null
+     * @return the JSON literal
+     * @throws IllegalArgumentException if the value is not a scalar JSON can represent
+     */
+    static String literal(Object value) {
+        if (!isScalar(value)) {
+            throw new IllegalArgumentException("Not a JSON scalar - " + value);
+        }
+        if (value instanceof String) {
+            return quote((String) value);
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                return Long.toString((long) number);
+            }
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Returns whether a parsed value can be written back by {@link #literal}: a string, a finite
+     * number, a boolean or null.
+     *
+     * @param value a parsed value
+     * @return true for a scalar
+     */
+    static boolean isScalar(Object value) {
+        return value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Double && Double.isFinite((Double) value);
+    }
+
+    private Object value() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{' || c == '[') {
+            if (++depth > MAX_DEPTH) {
+                throw error("Nested deeper than " + MAX_DEPTH + " levels");
+            }
+            Object nested = c == '{' ? object() : array();
+            depth--;
+            return nested;
+        } else if (c == '"') {
+            return string();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            return number();
+        } else if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        } else if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        } else if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        throw error("Unexpected character");
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a member name");
+            }
+            String name = string();
+            skipWhitespace();
+            expect(':');
+            object.put(name, value());
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String string() {
+        StringBuilder out = new StringBuilder();
+        position++;
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char escape = next();
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    out.append(escape);
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated escape");
+                    }
+                    try {
+                        out.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error("Invalid escape");
+            }
+        }
+    }
+
+    private Double number() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        double number;
+        try {
+            number = Double.parseDouble(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("Invalid number");
+        }
+        if (Double.isInfinite(number)) {
+            position = start;
+            throw error("Number out of range");
+        }
+        return number;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at column " + (position + 1));
+    }
+}
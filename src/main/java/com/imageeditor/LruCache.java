@@ -0,0 +1,190 @@
+package com.imageeditor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A least-recently-used cache bounded by the total weight of its values, usually their size in
+ * bytes, rather than by their number.
+ * <p>
+ * Keys are spread over a power-of-two number of stripes by hash. Each stripe is an access-ordered
+ * map with its own lock and an equal share of the capacity, and evicts its own least recently used
+ * entries, so threads working on different keys rarely wait for each other. A value heavier than a
+ * stripe's share is not cached at all. Counters are kept in {@link LongAdder}s outside the locks.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class LruCache<K, V> {
+
+    /** Smallest share of the capacity the default striping gives each stripe. */
+    static final long MIN_STRIPE_WEIGHT = 8L << 20;
+
+    private final Stripe<K, V>[] stripes;
+    private final ToLongFunction<V> weigher;
+    private final long capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitWeight = new LongAdder();
+
+    /**
+     * Creates a cache with up to four stripes per CPU, fewer if a stripe would get less than
+     * {@link #MIN_STRIPE_WEIGHT}.
+     *
+     * @param capacity the total weight the cache may hold, positive
+     * @param weigher the weight of a value
+     */
+    LruCache(long capacity, ToLongFunction<V> weigher) {
+        this(capacity, defaultStripes(capacity), weigher);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the total weight the cache may hold, positive
+     * @param stripes the number of independently locked stripes, a power of two
+     * @param weigher the weight of a value
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LruCache(long capacity, int stripes, ToLongFunction<V> weigher) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripes must be a power of two: " + stripes);
+        }
+        this.capacity = capacity;
+        this.weigher = weigher;
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe<>(capacity / stripes);
+        }
+    }
+
+    private static int defaultStripes(long capacity) {
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4));
+        while (stripes > 1 && capacity / stripes < MIN_STRIPE_WEIGHT) {
+            stripes >>= 1;
+        }
+        return stripes;
+    }
+
+    /**
+     * Returns the cached value for a key and marks it most recently used.
+     *
+     * @param key the key
+     * @return the value, or null if it is not cached
+     */
+    V get(K key) {
+        Stripe<K, V> stripe = stripe(key);
+        V value;
+        synchronized (stripe) {
+            value = stripe.map.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+            hitWeight.add(weigher.applyAsLong(value));
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value, evicting the least recently used entries of its stripe to make room.
+     *
+     * @param key the key
+     * @param value the value
+     * @return whether the value was cached; false if it is heavier than a stripe's share
+     */
+    boolean put(K key, V value) {
+        Stripe<K, V> stripe = stripe(key);
+        long weight = weigher.applyAsLong(value);
+        if (weight > stripe.capacity) {
+            return false;
+        }
+        synchronized (stripe) {
+            V previous = stripe.map.put(key, value);
+            if (previous != null) {
+                stripe.weight -= weigher.applyAsLong(previous);
+            }
+            stripe.weight += weight;
+            Iterator<Map.Entry<K, V>> eldest = stripe.map.entrySet().iterator();
+            while (stripe.weight > stripe.capacity) {
+                stripe.weight -= weigher.applyAsLong(eldest.next().getValue());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the counters and current size of the cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    Stats stats() {
+        long weight = 0;
+        int entries = 0;
+        for (Stripe<K, V> stripe : stripes) {
+            synchronized (stripe) {
+                weight += stripe.weight;
+                entries += stripe.map.size();
+            }
+        }
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), hitWeight.sum(), weight, entries, capacity);
+    }
+
+    private Stripe<K, V> stripe(K key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static final class Stripe<K, V> {
+
+        final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+        final long capacity;
+        long weight;
+
+        Stripe(long capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /** Cache counters since creation and its size at the time of the snapshot. */
+    static final class Stats {
+
+        final long hits;
+        final long misses;
+        final long evictions;
+        final long hitWeight;
+        final long weight;
+        final int entries;
+        final long capacity;
+
+        Stats(long hits, long misses, long evictions, long hitWeight, long weight, int entries, long capacity) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.hitWeight = hitWeight;
+            this.weight = weight;
+            this.entries = entries;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Returns the fraction of lookups that hit.
+         *
+         * @return hits over lookups, or 0 before the first lookup
+         */
+        double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+/**
+ * Runs the jobs of a JSONL manifest, one JSON object per line:
+ * <pre>
+ * {"input": "in/a.jpg", "ops": ["auto-orient", "blur:8"], "output": "out/a.png"}
+ * </pre>
+ * {@code ops} is optional, an optional {@code id} is copied to the result, and relative paths are
+ * resolved against the manifest's directory.
+ * <p>
+ * The manifest is read one line at a time and each line is handed to a fixed pool of workers. At
+ * most twice as many lines as there are workers are read ahead, so a manifest of any length is
+ * never held in memory. For every job one JSON line is written to the result log as soon as the job
+ * finishes, in completion order, with its manifest line number, status and decode, process and
+ * encode times in milliseconds.
+ * <p>
+ * A job that throws an {@link Error} such as running out of memory fails with a result line like any
+ * other, but no further job is started, since the JVM may be left in an unknown state. Every later
+ * line gets an error result without running, and {@link #run} throws the Error once the log is
+ * complete.
+ * <p>
+ * With a {@link ResultCache}, each input is read into memory and hashed before decoding, and a job
+ * whose result is cached just writes the cached bytes; its result line says {@code "cached":true}.
+ * A job that misses while an identical job is being processed waits for that result instead of
+ * processing it again, and says {@code "coalesced":true}; see {@link SingleFlight}.
+ * With a {@link DecodedCache}, jobs that run different operations on the same input file decode it
+ * once. With an {@link AdmissionController}, a job waits before decoding until its estimated memory
+ * fits the budget alongside the jobs in flight.
+ */
+final class ManifestRunner {
+
+    private final int workers;
+    private final boolean draft;
+    private final ForkJoinPool pool;
+    private final ResultCache cache;
+    private final DecodedCache decodedCache;
+    private final AdmissionController admission;
+    private final SingleFlight<String, byte[]> flights = new SingleFlight<>();
+
+    /**
+     * Creates a manifest runner.
+     *
+     * @param workers jobs to run at once, at least 1
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @param pool the pool kernels run on, or null to run on the worker threads
+     * @param cache the cache for encoded results, or null to run every job
+     * @param decodedCache the cache for decoded inputs, or null to decode for every job
+     * @param admission the memory budget jobs wait for before decoding, or null to start them at once
+     */
+    ManifestRunner(int workers, boolean draft, ForkJoinPool pool, ResultCache cache, DecodedCache decodedCache,
+            AdmissionController admission) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be positive: " + workers);
+        }
+        this.workers = workers;
+        this.draft = draft;
+        this.pool = pool;
+        this.cache = cache;
+        this.decodedCache = decodedCache;
+        this.admission = admission;
+    }
+
+    /**
+     * Returns the default number of workers: the CPUs this JVM may use. The JVM derives this from
+     * the container's cgroup CPU quota when there is one, so a pod limited to 2 CPUs gets 2 workers
+     * whatever the size of the node.
+     *
+     * @return the default worker count
+     */
+    static int defaultWorkers() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Runs every job of a manifest and returns once all of them have finished.
+     *
+     * @param manifest the manifest, read line by line
+     * @param base the directory relative paths in the manifest are resolved against
+     * @param log where result lines are written
+     * @return the number of jobs that failed
+     * @throws IOException if the manifest cannot be read or the log cannot be written
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws Error the first Error a job failed with, once every line has its result
+     */
+    int run(BufferedReader manifest, Path base, Writer log) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        Semaphore readAhead = new Semaphore(workers * 2);
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<Error> error = new AtomicReference<>();
+        List<IOException> logErrors = new ArrayList<>(1);
+        try {
+            int number = 0;
+            for (String line = manifest.readLine(); line != null; line = manifest.readLine()) {
+                number++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                readAhead.acquire();
+                String text = line;
+                int lineNumber = number;
+                executor.execute(() -> {
+                    try {
+                        String result;
+                        if (error.get() == null) {
+                            result = runJob(text, lineNumber, base, failures, error);
+                        } else {
+                            failures.incrementAndGet();
+                            result = result(lineNumber, null, null, null, null, "Not run after an earlier error",
+                                    new long[3], 0);
+                        }
+                        synchronized (log) {
+                            log.write(result);
+                            log.write('\n');
+                            log.flush();
+                        }
+                    } catch (IOException e) {
+                        synchronized (logErrors) {
+                            logErrors.add(e);
+                        }
+                    } finally {
+                        readAhead.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        if (!logErrors.isEmpty()) {
+            throw logErrors.get(0);
+        }
+        return failures.get();
+    }
+
+    /**
+     * Runs one manifest line and returns its result line, counting it if it fails and recording the
+     * first Error thrown.
+     */
+    private String runJob(String line, int number, Path base, AtomicInteger failures, AtomicReference<Error> error) {
+        long start = System.nanoTime();
+        long[] times = new long[3];
+        Object id = null;
+        String input = null;
+        String output = null;
+        String reuse = null;
+        try {
+            Map<String, Object> job = Json.parseObject(line);
+            id = id(job);
+            input = string(job, "input");
+            output = string(job, "output");
+            Pipeline pipeline = new Pipeline(operations(job.get("ops")));
+            File outputFile = base.resolve(output).toFile();
+            String format = Pipeline.formatOf(outputFile);
+
+            File parent = outputFile.getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            if (cache == null) {
+                File inputFile = base.resolve(input).toFile();
+                AdmissionController.Permit permit = admit(pipeline, inputFile);
+                try {
+                    long t = System.nanoTime();
+                    Pipeline.Decoded decoded = decodedCache != null
+                            ? decodedCache.decode(inputFile, pipeline, draft)
+                            : pipeline.decode(inputFile, draft);
+                    times[0] = System.nanoTime() - t;
+                    t = System.nanoTime();
+                    BufferedImage result = pipeline.apply(decoded, pool);
+                    times[1] = System.nanoTime() - t;
+                    t = System.nanoTime();
+                    Pipeline.write(result, outputFile, format);
+                    times[2] = System.nanoTime() - t;
+                } finally {
+                    release(permit);
+                }
+            } else {
+                reuse = runCached(pipeline, base.resolve(input), outputFile, format, times);
+            }
+            return result(number, id, input, output, reuse, null, times, System.nanoTime() - start);
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            return result(number, id, input, output, null, String.valueOf(e.getMessage()), times,
+                    System.nanoTime() - start);
+        } catch (Error e) {
+            error.compareAndSet(null, e);
+            failures.incrementAndGet();
+            return result(number, id, input, output, null, e.toString(), times, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs a job through the result cache. Returns {@code "cached"} for a hit, {@code "coalesced"}
+     * if an identical job in progress produced the result, or null if this job processed it.
+     */
+    private String runCached(Pipeline pipeline, Path input, File output, String format, long[] times)
+            throws IOException {
+        long t = System.nanoTime();
+        byte[] bytes = Files.readAllBytes(input);
+        long read = System.nanoTime() - t;
+        String key = ResultCache.key(bytes, pipeline, format, draft);
+        ByteBuffer cached = cache.get(key);
+        String reuse = "cached";
+        if (cached == null) {
+            boolean[] computed = new boolean[1];
+            byte[] encoded = flights.run(key, () -> {
+                computed[0] = true;
+                AdmissionController.Permit permit = admit(pipeline, input.toFile());
+                try {
+                    long step = System.nanoTime();
+                    Pipeline.Decoded decoded;
+                    if (decodedCache != null) {
+                        decoded = decodedCache.decode(input.toFile(), pipeline, draft);
+                    } else {
+                        try (ImageInputStream stream =
+                                new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+                            decoded = pipeline.decode(stream, input.toString(), draft);
+                        }
+                    }
+                    times[0] = read + System.nanoTime() - step;
+                    step = System.nanoTime();
+                    BufferedImage image = pipeline.apply(decoded, pool);
+                    times[1] = System.nanoTime() - step;
+                    step = System.nanoTime();
+                    byte[] result = Pipeline.encode(image, format);
+                    cache.put(key, result);
+                    times[2] = System.nanoTime() - step;
+                    return result;
+                } finally {
+                    release(permit);
+                }
+            });
+            cached = ByteBuffer.wrap(encoded);
+            reuse = computed[0] ? null : "coalesced";
+            t = System.nanoTime();
+        }
+        try (FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (cached.hasRemaining()) {
+                out.write(cached);
+            }
+        }
+        times[2] += System.nanoTime() - t;
+        return reuse;
+    }
+
+    /** Waits until the job fits the memory budget, if there is one. */
+    private AdmissionController.Permit admit(Pipeline pipeline, File input) throws IOException {
+        if (admission == null) {
+            return null;
+        }
+        return admission.acquire(ImageProbe.of(input).memory(pipeline, draft));
+    }
+
+    private static void release(AdmissionController.Permit permit) {
+        if (permit != null) {
+            permit.close();
+        }
+    }
+
+    private static Object id(Map<String, Object> job) {
+        Object id = job.get("id");
+        if (!Json.isScalar(id)) {
+            throw new IllegalArgumentException("\"id\" must be a string, number, boolean or null");
+        }
+        return id;
+    }
+
+    private static String string(Map<String, Object> job, String name) {
+        Object value = job.get(name);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new IllegalArgumentException("Job needs a string \"" + name + "\"");
+        }
+        return (String) value;
+    }
+
+    private static List<String> operations(Object ops) {
+        if (ops == null) {
+            return List.of();
+        }
+        if (!(ops instanceof List)) {
+            throw new IllegalArgumentException("\"ops\" must be an array of operation specs");
+        }
+        List<String> specs = new ArrayList<>();
+        for (Object spec : (List<?>) ops) {
+            if (!(spec instanceof String)) {
+                throw new IllegalArgumentException("\"ops\" must be an array of operation specs");
+            }
+            specs.add((String) spec);
+        }
+        return specs;
+    }
+
+    private static String result(int number, Object id, String input, String output, String reuse,
+            String error, long[] times, long total) {
+        StringBuilder out = new StringBuilder("{\"line\":").append(number);
+        if (id != null) {
+            out.append(",\"id\":").append(Json.literal(id));
+        }
+        out.append(",\"input\":").append(Json.quote(input));
+        out.append(",\"output\":").append(Json.quote(output));
+        out.append(",\"status\":").append(error == null ? "\"ok\"" : "\"error\"");
+        if (error != null) {
+            out.append(",\"error\":").append(Json.quote(error));
+        }
+        if (reuse != null) {
+            out.append(",\"").append(reuse).append("\":true");
+        }
+        out.append(",\"decodeMs\":").append(millis(times[0]));
+        out.append(",\"processMs\":").append(millis(times[1]));
+        out.append(",\"encodeMs\":").append(millis(times[2]));
+        out.append(",\"totalMs\":").append(millis(total));
+        return out.append('}').toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,54 @@
+package com.imageeditor;
+
+import java.util.Locale;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, served by {@link ImageServer} at
+ * {@code /metrics}.
+ */
+final class Metrics {
+
+    private Metrics() {
+    }
+
+    /**
+     * Appends the counters and size of a cache as a family of series sharing a name prefix.
+     *
+     * @param out where to append the metrics
+     * @param prefix the series name prefix, e.g. {@code imageeditor_result_cache}
+     * @param cache what the cache is called in help texts, e.g. {@code result cache in memory}
+     * @param stats the cache's statistics
+     */
+    static void cache(StringBuilder out, String prefix, String cache, LruCache.Stats stats) {
+        metric(out, prefix + "_hits_total", "counter", "Hits in the " + cache, stats.hits);
+        metric(out, prefix + "_misses_total", "counter", "Misses in the " + cache, stats.misses);
+        metric(out, prefix + "_evictions_total", "counter", "Entries evicted from the " + cache + " to make room",
+                stats.evictions);
+        metric(out, prefix + "_hit_ratio", "gauge", "Hits over lookups in the " + cache + " since start",
+                stats.hitRate());
+        metric(out, prefix + "_bytes", "gauge", "Bytes held in the " + cache, stats.weight);
+        metric(out, prefix + "_entries", "gauge", "Entries held in the " + cache, stats.entries);
+        metric(out, prefix + "_capacity_bytes", "gauge", "Capacity of the " + cache + " in bytes", stats.capacity);
+    }
+
+    /**
+     * Appends one metric with its help and type lines.
+     *
+     * @param out where to append the metric
+     * @param name the series name
+     * @param type {@code counter} or {@code gauge}
+     * @param help what the series measures
+     * @param value the current value; whole numbers are written without a fraction
+     */
+    static void metric(StringBuilder out, String name, String type, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append(name).append(' ');
+        if (value == Math.rint(value)) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.6f", value));
+        }
+        out.append('\n');
+    }
+}
@@ -0,0 +1,283 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One step of a {@link Pipeline}, parsed from a command-line spec such as {@code rotate-right},
+ * {@code brightness:-20}, {@code gamma:2.2} or {@code blur:8}.
+ */
+final class Operation implements Pipeline.Stage {
+
+    /** What kind of argument follows the colon in a spec. */
+    enum Argument {
+        NONE,
+        INTEGER,
+        DECIMAL,
+        /** {@code X,Y,WIDTH,HEIGHT}. */
+        REGION
+    }
+
+    /** How an operation relates output pixels to input pixels, which decides how runs are fused. */
+    enum Category {
+        /** Each output pixel depends only on the same input pixel, see {@link PointChain}. */
+        POINT,
+        /** Pixels are moved but not changed, see {@link GeometricChain}. */
+        GEOMETRIC,
+        /** Output pixels depend on a neighbourhood. */
+        AREA
+    }
+
+    /** The operations a pipeline can run, by spec name. */
+    enum Kind {
+        GRAYSCALE("grayscale", Argument.NONE, Category.POINT),
+        BRIGHTNESS("brightness", Argument.INTEGER, Category.POINT),
+        CONTRAST("contrast", Argument.INTEGER, Category.POINT),
+        GAMMA("gamma", Argument.DECIMAL, Category.POINT),
+        INVERT("invert", Argument.NONE, Category.POINT),
+        ROTATE_RIGHT("rotate-right", Argument.NONE, Category.GEOMETRIC),
+        ROTATE_LEFT("rotate-left", Argument.NONE, Category.GEOMETRIC),
+        ROTATE_180("rotate-180", Argument.NONE, Category.GEOMETRIC),
+        FLIP_HORIZONTAL("flip-horizontal", Argument.NONE, Category.GEOMETRIC),
+        FLIP_VERTICAL("flip-vertical", Argument.NONE, Category.GEOMETRIC),
+        AUTO_ORIENT("auto-orient", Argument.NONE, Category.GEOMETRIC),
+        CROP("crop", Argument.REGION, Category.GEOMETRIC),
+        BLUR("blur", Argument.INTEGER, Category.AREA);
+
+        final String spec;
+        final Argument argument;
+        final Category category;
+
+        Kind(String spec, Argument argument, Category category) {
+            this.spec = spec;
+            this.argument = argument;
+            this.category = category;
+        }
+    }
+
+    final Kind kind;
+    final double argument;
+    /** X, Y, width and height for crop, otherwise null. */
+    final int[] region;
+
+    private Operation(Kind kind, double argument) {
+        this(kind, argument, null);
+    }
+
+    private Operation(Kind kind, double argument, int[] region) {
+        this.kind = kind;
+        this.argument = argument;
+        this.region = region;
+    }
+
+    /**
+     * Parses an operation spec: the operation name, followed by {@code :N} for brightness and
+     * contrast (percentage), gamma (exponent) and blur (block size), or {@code :X,Y,WIDTH,HEIGHT}
+     * for crop.
+     *
+     * @param spec the spec, e.g. {@code blur:8}
+     * @return the parsed operation
+     * @throws IllegalArgumentException if the name is unknown or the argument is missing or invalid
+     */
+    static Operation parse(String spec) {
+        int colon = spec.indexOf(':');
+        String name = (colon < 0 ? spec : spec.substring(0, colon)).toLowerCase(Locale.ROOT);
+        for (Kind kind : Kind.values()) {
+            if (!kind.spec.equals(name)) {
+                continue;
+            }
+            if (kind.argument == Argument.NONE) {
+                if (colon >= 0) {
+                    throw new IllegalArgumentException(kind.spec + " takes no argument - " + spec);
+                }
+                return new Operation(kind, 0);
+            }
+            if (colon < 0) {
+                throw new IllegalArgumentException(kind.spec + " needs an argument, e.g. " + kind.spec
+                        + (kind.argument == Argument.REGION ? ":0,0,640,480" : ":10"));
+            }
+            if (kind.argument == Argument.REGION) {
+                return new Operation(kind, 0, parseRegion(spec, spec.substring(colon + 1)));
+            }
+            double argument;
+            try {
+                String text = spec.substring(colon + 1);
+                argument = kind.argument == Argument.INTEGER ? Integer.parseInt(text) : Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number in operation - " + spec);
+            }
+            if (kind == Kind.BLUR && argument < 1) {
+                throw new IllegalArgumentException("Blur block size must be at least 1 - " + spec);
+            }
+            if (kind == Kind.GAMMA && !(argument > 0 && argument < Double.POSITIVE_INFINITY)) {
+                throw new IllegalArgumentException("Gamma must be a positive number - " + spec);
+            }
+            return new Operation(kind, argument);
+        }
+        throw new IllegalArgumentException("Unknown operation - " + spec);
+    }
+
+    private static int[] parseRegion(String spec, String text) {
+        String[] parts = text.split(",", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Expected X,Y,WIDTH,HEIGHT - " + spec);
+        }
+        int[] region = new int[4];
+        try {
+            for (int i = 0; i < 4; i++) {
+                region[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in operation - " + spec);
+        }
+        if (region[0] < 0 || region[1] < 0 || region[2] < 1 || region[3] < 1) {
+            throw new IllegalArgumentException("Crop needs a non-negative origin and a positive size - " + spec);
+        }
+        return region;
+    }
+
+    /**
+     * Returns the 256-entry table this operation applies to each sRGB channel.
+     *
+     * @return channel table
+     * @throws IllegalStateException if the operation is not a per-channel point operation
+     */
+    byte[] channelTable() {
+        if (kind == Kind.BRIGHTNESS) {
+            return BrightnessLut.table((int) argument);
+        }
+        byte[] table = new byte[256];
+        for (int c = 0; c < 256; c++) {
+            long value;
+            switch (kind) {
+                case CONTRAST:
+                    // In long, since (c - 128) * (100 + argument) overflows int for large arguments.
+                    value = 128 + ((c - 128) * (100L + (int) argument)) / 100;
+                    break;
+                case GAMMA:
+                    value = Math.round(255 * Math.pow(c / 255.0, 1 / argument));
+                    break;
+                case INVERT:
+                    value = 255 - c;
+                    break;
+                default:
+                    throw new IllegalStateException(kind.spec + " is not a channel mapping");
+            }
+            table[c] = (byte) Math.min(255, Math.max(0L, value));
+        }
+        return table;
+    }
+
+    /**
+     * Returns the D4 element of a rotation or flip.
+     *
+     * @return the transform
+     * @throws IllegalStateException if the operation is not a fixed rotation or flip
+     */
+    Orientation orientation() {
+        switch (kind) {
+            case ROTATE_RIGHT:
+                return Orientation.ROTATE_RIGHT;
+            case ROTATE_LEFT:
+                return Orientation.ROTATE_LEFT;
+            case ROTATE_180:
+                return Orientation.ROTATE_180;
+            case FLIP_HORIZONTAL:
+                return Orientation.FLIP_HORIZONTAL;
+            case FLIP_VERTICAL:
+                return Orientation.FLIP_VERTICAL;
+            default:
+                throw new IllegalStateException(kind.spec + " is not a fixed rotation or flip");
+        }
+    }
+
+    /**
+     * Applies the operation. Flips of the types {@link ImageEditor#canFlipInPlace} accepts mirror
+     * {@code image} in place, so callers must own it. On its own {@code auto-orient} has no metadata
+     * to act on and returns the image; {@link Pipeline#run} resolves it from the decoded file.
+     *
+     * @param image the image to transform
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the transformed image
+     * @throws IllegalArgumentException if a crop region is outside the image
+     */
+    BufferedImage apply(BufferedImage image, ForkJoinPool pool) {
+        switch (kind) {
+            case GRAYSCALE:
+                return ImageEditor.convertToGrayscale(image, pool);
+            case BRIGHTNESS:
+                return ImageEditor.adjustBrightness(image, (int) argument, pool);
+            case CONTRAST:
+            case GAMMA:
+            case INVERT:
+                return new PointChain(List.of(this)).apply(image, pool);
+            case ROTATE_RIGHT:
+                return ImageEditor.rotateRight(image, pool);
+            case ROTATE_LEFT:
+                return ImageEditor.rotateLeft(image, pool);
+            case ROTATE_180:
+                return ImageEditor.rotate180(image, pool);
+            case FLIP_HORIZONTAL:
+                return ImageEditor.canFlipInPlace(image)
+                        ? ImageEditor.flipHorizontalInPlace(image, pool)
+                        : ImageEditor.flipHorizontal(image, pool);
+            case FLIP_VERTICAL:
+                return ImageEditor.canFlipInPlace(image)
+                        ? ImageEditor.flipVerticalInPlace(image, pool)
+                        : ImageEditor.flipVertical(image, pool);
+            case AUTO_ORIENT:
+                return image;
+            case CROP:
+                return ImageView.of(image).crop(region[0], region[1], region[2], region[3]).materialize(pool);
+            case BLUR:
+                return ImageEditor.applyBlur(image, (int) argument, pool);
+            default:
+                throw new AssertionError(kind);
+        }
+    }
+
+    /**
+     * Applies the operation to a view. Geometric operations only transform the view; the others read
+     * through it, so a preceding rotation, flip or crop is never copied on its own.
+     *
+     * @param view the image to transform
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return a view of the result
+     */
+    @Override
+    public ImageView apply(ImageView view, ForkJoinPool pool) {
+        if (kind.category == Category.GEOMETRIC) {
+            return new GeometricChain(List.of(this), Orientation.IDENTITY).apply(view, pool);
+        }
+        if (view.isPlain()) {
+            return ImageView.of(apply(view.source(), pool));
+        }
+        PixelReader reader = view.reader();
+        switch (kind) {
+            case GRAYSCALE:
+                return ImageView.of(RasterKernels.grayscale(reader, pool));
+            case BRIGHTNESS:
+                return ImageView.of(BrightnessLut.apply(reader, (int) argument, pool));
+            case BLUR:
+                return ImageView.of(SummedAreaBlur.apply(reader, (int) argument, pool));
+            default:
+                return new PointChain(List.of(this)).apply(view, pool);
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind.argument) {
+            case INTEGER:
+                return kind.spec + ":" + (int) argument;
+            case DECIMAL:
+                return kind.spec + ":" + argument;
+            case REGION:
+                return kind.spec + ":" + region[0] + "," + region[1] + "," + region[2] + "," + region[3];
+            default:
+                return kind.spec;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.imageeditor;
+
+/**
+ * The eight rotations and mirrorings of a rectangular image, i.e. the dihedral group D4.
+ * <p>
+ * Each element is described by where a destination pixel (x, y) reads from: the coordinates are
+ * swapped if {@link #transposed}, and then mirrored within the source width and height as given by
+ * {@link #mirrorX} and {@link #mirrorY}. Any chain of rotations and flips therefore composes into
+ * one element, see {@link #then(Orientation)}. Constants are declared in EXIF orientation order,
+ * so the tag value of each is {@code ordinal() + 1}.
+ */
+enum Orientation {
+    /** EXIF 1. */
+    IDENTITY(false, false, false),
+    /** EXIF 2. */
+    FLIP_HORIZONTAL(false, true, false),
+    /** EXIF 3. */
+    ROTATE_180(false, true, true),
+    /** EXIF 4. */
+    FLIP_VERTICAL(false, false, true),
+    /** EXIF 5: mirror along the main diagonal. */
+    TRANSPOSE(true, false, false),
+    /** EXIF 6: 90 degrees clockwise. */
+    ROTATE_RIGHT(true, false, true),
+    /** EXIF 7: mirror along the anti-diagonal. */
+    TRANSVERSE(true, true, true),
+    /** EXIF 8: 90 degrees counter-clockwise. */
+    ROTATE_LEFT(true, true, false);
+
+    final boolean transposed;
+    final boolean mirrorX;
+    final boolean mirrorY;
+
+    Orientation(boolean transposed, boolean mirrorX, boolean mirrorY) {
+        this.transposed = transposed;
+        this.mirrorX = mirrorX;
+        this.mirrorY = mirrorY;
+    }
+
+    private static Orientation of(boolean transposed, boolean mirrorX, boolean mirrorY) {
+        for (Orientation orientation : values()) {
+            if (orientation.transposed == transposed && orientation.mirrorX == mirrorX
+                    && orientation.mirrorY == mirrorY) {
+                return orientation;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * Composes two transforms.
+     *
+     * @param next the transform applied to the result of this one
+     * @return the single transform equivalent to applying this one and then {@code next}
+     */
+    Orientation then(Orientation next) {
+        // A destination pixel reads next's mapping first; a transposed first step exchanges which
+        // source axis next's mirrors land on.
+        if (transposed) {
+            return of(!next.transposed, mirrorX ^ next.mirrorY, mirrorY ^ next.mirrorX);
+        }
+        return of(next.transposed, mirrorX ^ next.mirrorX, mirrorY ^ next.mirrorY);
+    }
+
+    /**
+     * Returns the transform that undoes this one.
+     *
+     * @return the inverse element
+     */
+    Orientation inverse() {
+        for (Orientation orientation : values()) {
+            if (then(orientation) == IDENTITY) {
+                return orientation;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the transform that brings an image stored with an EXIF orientation tag upright.
+     *
+     * @param tag the EXIF orientation value
+     * @return the matching transform, or IDENTITY for values outside 1..8
+     */
+    static Orientation fromExif(int tag) {
+        return tag >= 1 && tag <= 8 ? values()[tag - 1] : IDENTITY;
+    }
+
+    /**
+     * Returns the source x coordinate a destination pixel reads from.
+     *
+     * @param x destination x
+     * @param y destination y
+     * @param sourceWidth width of the source image
+     * @return source x
+     */
+    int sourceX(int x, int y, int sourceWidth) {
+        int u = transposed ? y : x;
+        return mirrorX ? sourceWidth - 1 - u : u;
+    }
+
+    /**
+     * Returns the source y coordinate a destination pixel reads from.
+     *
+     * @param x destination x
+     * @param y destination y
+     * @param sourceHeight height of the source image
+     * @return source y
+     */
+    int sourceY(int x, int y, int sourceHeight) {
+        int v = transposed ? x : y;
+        return mirrorY ? sourceHeight - 1 - v : v;
+    }
+}
@@ -0,0 +1,409 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * A sequence of operations run on one decoded image.
+ * <p>
+ * The input is decoded once, every operation works on the in-memory result of the previous one,
+ * and only the final image is encoded, so chaining N operations costs one decode and one encode
+ * instead of N of each, and JPEG generation loss is paid once. Consecutive point operations are
+ * compiled into a single {@link PointChain}, so they also share one pass over the pixels.
+ * Rotations, flips and crops only transform an {@link ImageView}; the next stage reads through it,
+ * and the view is materialized once, before encoding.
+ */
+final class Pipeline {
+
+    /** One executable step: a single operation or several fused ones. */
+    interface Stage {
+
+        /**
+         * Transforms an image owned by the pipeline.
+         *
+         * @param view the image to transform, whose source may be modified
+         * @param pool the pool to run on, or null to run on the calling thread
+         * @return the transformed image, possibly a lazy view
+         */
+        ImageView apply(ImageView view, ForkJoinPool pool);
+    }
+
+    private final List<Operation> operations;
+    private final List<Stage> stages;
+
+    /**
+     * Creates a pipeline from operation specs, in the order they run.
+     *
+     * @param specs operation specs as accepted by {@link Operation#parse(String)}
+     * @throws IllegalArgumentException if a spec is invalid
+     */
+    Pipeline(List<String> specs) {
+        List<Operation> parsed = new ArrayList<>(specs.size());
+        for (String spec : specs) {
+            parsed.add(Operation.parse(spec));
+        }
+        this.operations = Collections.unmodifiableList(parsed);
+        this.stages = Collections.unmodifiableList(compile(parsed, Orientation.IDENTITY));
+    }
+
+    /**
+     * Groups the operations into stages: runs of point operations become a {@link PointChain}, runs
+     * of rotations and flips a {@link GeometricChain}, and a single point operation stays as is.
+     */
+    private static List<Stage> compile(List<Operation> operations, Orientation exif) {
+        List<Stage> stages = new ArrayList<>();
+        List<Operation> run = new ArrayList<>();
+        for (Operation operation : operations) {
+            if (!run.isEmpty() && run.get(0).kind.category != operation.kind.category) {
+                flush(run, exif, stages);
+            }
+            run.add(operation);
+            if (operation.kind.category == Operation.Category.AREA) {
+                flush(run, exif, stages);
+            }
+        }
+        flush(run, exif, stages);
+        return stages;
+    }
+
+    private static void flush(List<Operation> run, Orientation exif, List<Stage> stages) {
+        if (run.isEmpty()) {
+            return;
+        }
+        Operation.Category category = run.get(0).kind.category;
+        if (category == Operation.Category.GEOMETRIC) {
+            stages.add(new GeometricChain(List.copyOf(run), exif));
+        } else if (category == Operation.Category.POINT && run.size() > 1) {
+            stages.add(new PointChain(List.copyOf(run)));
+        } else {
+            stages.addAll(run);
+        }
+        run.clear();
+    }
+
+    /**
+     * Returns the operations in the order they run.
+     *
+     * @return unmodifiable list of operations
+     */
+    List<Operation> operations() {
+        return operations;
+    }
+
+    /**
+     * Returns the compiled stages in the order they run.
+     *
+     * @return unmodifiable list of stages
+     */
+    List<Stage> stages() {
+        return stages;
+    }
+
+    /**
+     * Runs every stage in turn. The input may be modified, since flips work in place.
+     *
+     * @param image the decoded input, owned by the pipeline from here on
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the result of the last operation, or the input if there are none
+     */
+    BufferedImage apply(BufferedImage image, ForkJoinPool pool) {
+        return apply(image, Orientation.IDENTITY, pool);
+    }
+
+    /**
+     * Runs every stage in turn, with {@code auto-orient} standing for the given transform.
+     *
+     * @param image the decoded input, owned by the pipeline from here on
+     * @param exif the transform that brings the input upright
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the result of the last operation, or the input if there are none
+     */
+    BufferedImage apply(BufferedImage image, Orientation exif, ForkJoinPool pool) {
+        return apply(exif == Orientation.IDENTITY ? stages : compile(operations, exif), image, pool);
+    }
+
+    private static BufferedImage apply(List<Stage> plan, BufferedImage image, ForkJoinPool pool) {
+        return apply(plan, image, true, pool);
+    }
+
+    /**
+     * Runs the stages. Only the final materialization can write to or return the input, so an input
+     * the pipeline does not own is protected by copying there instead.
+     */
+    private static BufferedImage apply(List<Stage> plan, BufferedImage image, boolean owned, ForkJoinPool pool) {
+        ImageView current = ImageView.of(image);
+        for (Stage stage : plan) {
+            current = stage.apply(current, pool);
+        }
+        return owned || current.source() != image ? current.materialize(pool) : current.copy(pool);
+    }
+
+    /**
+     * Returns whether the pipeline auto-orients, and so needs the input's EXIF orientation.
+     *
+     * @return true if an operation is {@code auto-orient}
+     */
+    boolean needsOrientation() {
+        for (Operation operation : operations) {
+            if (operation.kind == Operation.Kind.AUTO_ORIENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes {@code input}, runs the pipeline and encodes the result to {@code output} in the format
+     * named by its extension.
+     *
+     * @param input the image file to read
+     * @param output the file to write
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @throws IOException if the input cannot be decoded or the output cannot be encoded
+     */
+    void run(File input, File output, ForkJoinPool pool) throws IOException {
+        run(input, output, false, pool);
+    }
+
+    /**
+     * Decodes {@code input}, runs the pipeline and encodes the result to {@code output} in the format
+     * named by its extension.
+     *
+     * @param input the image file to read
+     * @param output the file to write
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @throws IOException if the input cannot be decoded or the output cannot be encoded
+     */
+    void run(File input, File output, boolean draft, ForkJoinPool pool) throws IOException {
+        String format = formatOf(output);
+        write(apply(decode(input, draft), pool), output, format);
+    }
+
+    /**
+     * A decoded input and what the pipeline needs to know about it besides its pixels. A shared
+     * input, such as one held by a {@link DecodedCache}, is never modified or returned by
+     * {@link #apply(Decoded, ForkJoinPool)}, so any number of threads may run pipelines on it.
+     */
+    static final class Decoded {
+
+        final BufferedImage image;
+        final Orientation exif;
+        final int factor;
+        final int width;
+        final int height;
+        final String format;
+        final boolean shared;
+
+        Decoded(BufferedImage image, Orientation exif, int factor, int width, int height, String format) {
+            this(image, exif, factor, width, height, format, false);
+        }
+
+        private Decoded(BufferedImage image, Orientation exif, int factor, int width, int height, String format,
+                boolean shared) {
+            this.image = image;
+            this.exif = exif;
+            this.factor = factor;
+            this.width = width;
+            this.height = height;
+            this.format = format;
+            this.shared = shared;
+        }
+
+        /**
+         * Returns this input marked as shared.
+         *
+         * @return an input with the same pixels that pipelines leave untouched
+         */
+        Decoded shared() {
+            return shared ? this : new Decoded(image, exif, factor, width, height, format, true);
+        }
+    }
+
+    /**
+     * Decodes an image file, reading its EXIF orientation if the pipeline auto-orients.
+     *
+     * @param input the image file to read
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @return the decoded image
+     * @throws IOException if the input cannot be decoded
+     */
+    Decoded decode(File input, boolean draft) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            return decode(stream, input.toString(), draft);
+        }
+    }
+
+    /**
+     * Decodes an image from a stream, reading its EXIF orientation if the pipeline auto-orients.
+     *
+     * @param stream the encoded image, or null
+     * @param name what to call the input in error messages
+     * @param draft whether to decode at the reduced resolution allowed by {@link Subsampling}
+     * @return the decoded image
+     * @throws IOException if the input cannot be decoded
+     */
+    Decoded decode(ImageInputStream stream, String name, boolean draft) throws IOException {
+        boolean orient = needsOrientation();
+        int factor = draft ? Subsampling.factor(operations) : 1;
+        Iterator<ImageReader> readers = stream == null
+                ? Collections.emptyIterator()
+                : ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            throw new IOException("Could not read image file - " + name);
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, !orient);
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(factor, factor, 0, 0);
+            BufferedImage image = reader.read(0, param);
+            Orientation exif = orient
+                    ? ExifReader.orientation(reader.getImageMetadata(0))
+                    : Orientation.IDENTITY;
+            String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+            return new Decoded(image, exif, factor, reader.getWidth(0), reader.getHeight(0), format);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Runs the pipeline on a decoded input.
+     *
+     * @param decoded the result of {@link #decode(File, boolean)}, owned by the pipeline from here on
+     *     unless it is {@linkplain Decoded#shared() shared}
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @return the result of the last operation
+     */
+    BufferedImage apply(Decoded decoded, ForkJoinPool pool) {
+        if (decoded.factor == 1) {
+            List<Stage> plan = decoded.exif == Orientation.IDENTITY ? stages : compile(operations, decoded.exif);
+            return apply(plan, decoded.image, !decoded.shared, pool);
+        }
+        // The subsampled path blurs before anything can touch the input, so it never modifies it.
+        return applySubsampled(decoded.image, decoded.factor, decoded.width, decoded.height, decoded.exif, pool);
+    }
+
+    /**
+     * Encodes an image, dropping its alpha channel if the format cannot store it.
+     *
+     * @param image the image to encode
+     * @param output the file to write
+     * @param format the format name, as returned by {@link #formatOf(File)}
+     * @throws IOException if the image cannot be encoded
+     */
+    static void write(BufferedImage image, File output, String format) throws IOException {
+        BufferedImage encodable = encodable(image, format);
+        if (encodable == null || !ImageIO.write(encodable, format, output)) {
+            throw new IOException("Cannot encode this image as " + format + " - " + output);
+        }
+    }
+
+    /**
+     * Encodes an image in memory, dropping its alpha channel if the format cannot store it.
+     *
+     * @param image the image to encode
+     * @param format an ImageIO format name
+     * @return the encoded image
+     * @throws IOException if the image cannot be encoded
+     */
+    static byte[] encode(BufferedImage image, String format) throws IOException {
+        BufferedImage encodable = encodable(image, format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            if (encodable == null || !ImageIO.write(encodable, format, stream)) {
+                throw new IOException("Cannot encode this image as " + format);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the image, or an opaque copy if only that can be encoded in the given format.
+     *
+     * @param image the image to encode
+     * @param format an ImageIO format name
+     * @return an image a writer for the format accepts, or null if there is none
+     */
+    static BufferedImage encodable(BufferedImage image, String format) {
+        if (ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(image), format).hasNext()) {
+            return image;
+        }
+        // Formats such as JPEG and BMP cannot store alpha; encode the opaque colours instead.
+        if (image.getColorModel().hasAlpha()) {
+            BufferedImage opaque = opaque(image);
+            if (ImageIO.getImageWriters(ImageTypeSpecifier.createFromRenderedImage(opaque), format).hasNext()) {
+                return opaque;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs the pipeline on a decode subsampled by {@code factor}: up to the first blur at the reduced
+     * resolution, with the block size scaled down to match, then at full resolution again.
+     */
+    private BufferedImage applySubsampled(BufferedImage image, int factor, int width, int height,
+            Orientation exif, ForkJoinPool pool) {
+        int index = Subsampling.blurIndex(operations);
+        List<Operation> draft = new ArrayList<>(operations.subList(0, index));
+        draft.add(Operation.parse("blur:" + (int) operations.get(index).argument / factor));
+        BufferedImage blurred = apply(compile(draft, Orientation.IDENTITY), image, pool);
+        BufferedImage expanded = Subsampling.expand(blurred, factor, width, height, pool);
+        return apply(compile(operations.subList(index + 1, operations.size()), exif), expanded, pool);
+    }
+
+    /**
+     * Copies the colours of an image with alpha into an opaque TYPE_3BYTE_BGR image.
+     *
+     * @param image the image to flatten
+     * @return an opaque copy
+     */
+    static BufferedImage opaque(BufferedImage image) {
+        int width = image.getWidth();
+        BufferedImage opaque = new BufferedImage(width, image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+        PixelReader reader = PixelReader.of(image);
+        byte[] out = RasterKernels.bytes(opaque);
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            reader.readRow(y, row);
+            for (int x = 0; x < width; x++) {
+                RasterKernels.putBgr(out, (y * width + x) * 3, row[x]);
+            }
+        }
+        return opaque;
+    }
+
+    /**
+     * Derives the ImageIO format name from a file extension.
+     *
+     * @param file the output file
+     * @return the format name, e.g. {@code jpg} or {@code png}
+     * @throws IllegalArgumentException if no ImageIO writer handles the extension
+     */
+    static String formatOf(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String suffix = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (!ImageIO.getImageWritersBySuffix(suffix).hasNext()) {
+            throw new IllegalArgumentException("Unsupported output format - " + file);
+        }
+        return suffix;
+    }
+}
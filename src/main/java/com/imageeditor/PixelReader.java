@@ -0,0 +1,187 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Reads rows of an image as packed sRGB ints, exactly as {@link BufferedImage#getRGB(int, int)} would
+ * return them, but straight from the backing array for the common raster layouts.
+ */
+abstract class PixelReader {
+
+    final int width;
+    final int height;
+
+    PixelReader(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Fills {@code rgb[0..width)} with the packed ARGB values of row {@code y}.
+     *
+     * @param y the row to read
+     * @param rgb destination buffer of at least {@code width} entries
+     */
+    final void readRow(int y, int[] rgb) {
+        readSpan(0, y, width, rgb);
+    }
+
+    /**
+     * Fills {@code rgb[0..length)} with the packed ARGB values of row {@code y} starting at column {@code x}.
+     *
+     * @param x the first column to read
+     * @param y the row to read
+     * @param length number of pixels to read
+     * @param rgb destination buffer of at least {@code length} entries
+     */
+    abstract void readSpan(int x, int y, int length, int[] rgb);
+
+    /**
+     * Returns the packed ARGB value of a single pixel.
+     *
+     * @param x the column
+     * @param y the row
+     * @return the pixel in the default sRGB colour model
+     */
+    abstract int getRGB(int x, int y);
+
+    /**
+     * Picks the fastest reader for the given image, falling back to the ColorModel for exotic types.
+     *
+     * @param image the source image
+     * @return a reader over the image
+     */
+    static PixelReader of(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return new ByteBgr(image);
+            case BufferedImage.TYPE_INT_RGB:
+                return new IntRgb(image, 0xFF000000, 0x00FFFFFF);
+            case BufferedImage.TYPE_INT_ARGB:
+                return new IntRgb(image, 0, 0xFFFFFFFF);
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return new ByteGray(image);
+            default:
+                return new Generic(image);
+        }
+    }
+
+    /** Reader for interleaved B, G, R bytes. */
+    static final class ByteBgr extends PixelReader {
+        private final byte[] data;
+        private final int offset;
+        private final int stride;
+
+        ByteBgr(BufferedImage image) {
+            super(image.getWidth(), image.getHeight());
+            this.data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            this.offset = RasterKernels.dataOffset(image);
+            this.stride = RasterKernels.scanlineStride(image);
+        }
+
+        @Override
+        void readSpan(int x, int y, int length, int[] rgb) {
+            int p = offset + y * stride + x * 3;
+            for (int i = 0; i < length; i++, p += 3) {
+                rgb[i] = 0xFF000000 | (data[p + 2] & 0xFF) << 16 | (data[p + 1] & 0xFF) << 8 | data[p] & 0xFF;
+            }
+        }
+
+        @Override
+        int getRGB(int x, int y) {
+            int p = offset + y * stride + x * 3;
+            return 0xFF000000 | (data[p + 2] & 0xFF) << 16 | (data[p + 1] & 0xFF) << 8 | data[p] & 0xFF;
+        }
+    }
+
+    /** Reader for one packed int per pixel, with or without alpha. */
+    static final class IntRgb extends PixelReader {
+        private final int[] data;
+        private final int offset;
+        private final int stride;
+        private final int alpha;
+        private final int mask;
+
+        IntRgb(BufferedImage image, int alpha, int mask) {
+            super(image.getWidth(), image.getHeight());
+            this.data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            this.offset = RasterKernels.dataOffset(image);
+            this.stride = RasterKernels.scanlineStride(image);
+            this.alpha = alpha;
+            this.mask = mask;
+        }
+
+        @Override
+        void readSpan(int x, int y, int length, int[] rgb) {
+            int p = offset + y * stride + x;
+            for (int i = 0; i < length; i++) {
+                rgb[i] = alpha | data[p + i] & mask;
+            }
+        }
+
+        @Override
+        int getRGB(int x, int y) {
+            return alpha | data[offset + y * stride + x] & mask;
+        }
+    }
+
+    /**
+     * Reader for 8-bit gray. The gray-to-sRGB curve is taken from the image's own ColorModel once,
+     * so the result matches getRGB exactly.
+     */
+    static final class ByteGray extends PixelReader {
+        private final byte[] data;
+        private final int offset;
+        private final int stride;
+        private final int[] toRgb = new int[256];
+
+        ByteGray(BufferedImage image) {
+            super(image.getWidth(), image.getHeight());
+            this.data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            this.offset = RasterKernels.dataOffset(image);
+            this.stride = RasterKernels.scanlineStride(image);
+            ColorModel colorModel = image.getColorModel();
+            byte[] sample = new byte[1];
+            for (int v = 0; v < 256; v++) {
+                sample[0] = (byte) v;
+                toRgb[v] = colorModel.getRGB(sample);
+            }
+        }
+
+        @Override
+        void readSpan(int x, int y, int length, int[] rgb) {
+            int p = offset + y * stride + x;
+            for (int i = 0; i < length; i++) {
+                rgb[i] = toRgb[data[p + i] & 0xFF];
+            }
+        }
+
+        @Override
+        int getRGB(int x, int y) {
+            return toRgb[data[offset + y * stride + x] & 0xFF];
+        }
+    }
+
+    /** Fallback reader that goes through the image's ColorModel one row at a time. */
+    static final class Generic extends PixelReader {
+        private final BufferedImage image;
+
+        Generic(BufferedImage image) {
+            super(image.getWidth(), image.getHeight());
+            this.image = image;
+        }
+
+        @Override
+        void readSpan(int x, int y, int length, int[] rgb) {
+            image.getRGB(x, y, length, 1, rgb, 0, length);
+        }
+
+        @Override
+        int getRGB(int x, int y) {
+            return image.getRGB(x, y);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A run of consecutive point operations compiled into a single pass over the image.
+ * <p>
+ * Every point operation maps an sRGB channel through a 256-entry table, except grayscale, which
+ * folds the three channels into one linear gray byte. Any chain therefore reduces to
+ * {@code out = post[luma(pre[r], pre[g], pre[b])]}, or to just {@code pre} per channel when no
+ * grayscale is involved. Tables are composed when the chain is built, including the sRGB decoding
+ * a following step would apply when reading the intermediate gray image, so the result is
+ * bit-identical to running the operations one by one, without allocating the intermediate images.
+ */
+final class PointChain implements Pipeline.Stage {
+
+    /** sRGB channel value a TYPE_BYTE_GRAY image reports for each stored gray byte. */
+    private static final int[] GRAY_TO_SRGB = new int[256];
+
+    static {
+        BufferedImage probe = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+        for (int v = 0; v < 256; v++) {
+            probe.getRaster().setSample(v, 0, 0, v);
+        }
+        PixelReader reader = PixelReader.of(probe);
+        for (int v = 0; v < 256; v++) {
+            GRAY_TO_SRGB[v] = reader.getRGB(v, 0) & 0xFF;
+        }
+    }
+
+    private final String description;
+    private final byte[] pre;
+    /** Null when the chain contains no grayscale step. */
+    private final byte[] post;
+    /** Whether {@link #post} yields linear gray bytes (TYPE_BYTE_GRAY) rather than sRGB values. */
+    private final boolean grayOutput;
+    private final float[] red = new float[256];
+    private final float[] green = new float[256];
+    private final float[] blue = new float[256];
+
+    /**
+     * Compiles a run of point operations.
+     *
+     * @param operations operations whose kind is a point operation, in the order they run
+     * @throws IllegalArgumentException if an operation is not a point operation
+     */
+    PointChain(List<Operation> operations) {
+        byte[] channels = identity();
+        byte[] gray = null;
+        boolean linear = false;
+        for (Operation operation : operations) {
+            if (operation.kind.category != Operation.Category.POINT) {
+                throw new IllegalArgumentException(operation + " is not a point operation");
+            }
+            if (operation.kind == Operation.Kind.GRAYSCALE) {
+                if (gray == null) {
+                    gray = identity();
+                } else {
+                    // The intermediate is read back with equal R, G and B and converted again.
+                    for (int i = 0; i < 256; i++) {
+                        int value = gray[i] & 0xFF;
+                        int srgb = linear ? GRAY_TO_SRGB[value] : value;
+                        gray[i] = (byte) RasterKernels.luma(srgb << 16 | srgb << 8 | srgb);
+                    }
+                }
+                linear = true;
+            } else {
+                byte[] table = operation.channelTable();
+                byte[] target = gray == null ? channels : gray;
+                for (int i = 0; i < 256; i++) {
+                    int value = target[i] & 0xFF;
+                    target[i] = table[gray != null && linear ? GRAY_TO_SRGB[value] : value];
+                }
+                if (gray != null) {
+                    linear = false;
+                }
+            }
+        }
+        this.description = operations.toString();
+        this.pre = channels;
+        this.post = gray;
+        this.grayOutput = linear;
+        for (int c = 0; c < 256; c++) {
+            int mapped = channels[c] & 0xFF;
+            red[c] = RasterKernels.RED_LUMA[mapped];
+            green[c] = RasterKernels.GREEN_LUMA[mapped];
+            blue[c] = RasterKernels.BLUE_LUMA[mapped];
+        }
+    }
+
+    private static byte[] identity() {
+        byte[] table = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            table[i] = (byte) i;
+        }
+        return table;
+    }
+
+    /**
+     * Runs the whole chain in one pass. The result is TYPE_BYTE_GRAY if the chain ends in grayscale
+     * and TYPE_3BYTE_BGR otherwise, like the last operation would have produced on its own.
+     *
+     * @param image the image to transform; it is not modified
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return the transformed image
+     */
+    BufferedImage apply(BufferedImage image, ForkJoinPool pool) {
+        if (post == null) {
+            return BrightnessLut.applyTable(image, pre, pool);
+        }
+        return apply(PixelReader.of(image), pool);
+    }
+
+    /**
+     * Reads the pixels of an image view, materialized or not, and runs the chain on them.
+     *
+     * @param view the image to transform; it is not modified
+     * @param pool the pool to run bands on, or null to run on the calling thread
+     * @return the transformed image
+     */
+    @Override
+    public ImageView apply(ImageView view, ForkJoinPool pool) {
+        return ImageView.of(view.isPlain() ? apply(view.source(), pool) : apply(view.reader(), pool));
+    }
+
+    private BufferedImage apply(PixelReader reader, ForkJoinPool pool) {
+        if (post == null) {
+            return BrightnessLut.applyTable(reader, pre, pool);
+        }
+        int width = reader.width;
+        int height = reader.height;
+        BufferedImage outputImage = new BufferedImage(width, height,
+                grayOutput ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                if (grayOutput) {
+                    int p = y * width;
+                    for (int x = 0; x < width; x++) {
+                        out[p + x] = post[luma(row[x])];
+                    }
+                } else {
+                    int p = y * width * 3;
+                    for (int x = 0; x < width; x++, p += 3) {
+                        byte value = post[luma(row[x])];
+                        out[p] = value;
+                        out[p + 1] = value;
+                        out[p + 2] = value;
+                    }
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    /** {@link RasterKernels#luma(int)} with {@link #pre} folded into the channel weights. */
+    private int luma(int rgb) {
+        float gray = (red[(rgb >> 16) & 0xFF] + green[(rgb >> 8) & 0xFF] + blue[rgb & 0xFF]) / 65535.0f;
+        return (int) (gray * 255 + 0.5f);
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,139 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Raster-direct implementations of the ImageEditor operations.
+ * Source pixels are read through a {@link PixelReader} and results are written straight into the
+ * backing array of the output image, so no per-pixel ColorModel conversion or allocation takes place.
+ * Every kernel produces exactly the pixels the original getRGB/setRGB loops produced.
+ */
+final class RasterKernels {
+
+    /**
+     * Per-channel luma contributions of the sRGB 8-bit to linear 16-bit curve, built with the same
+     * IEC 61966-2-1 formula and weights the JDK uses when storing sRGB values into a linear gray raster.
+     */
+    static final float[] RED_LUMA = new float[256];
+    static final float[] GREEN_LUMA = new float[256];
+    static final float[] BLUE_LUMA = new float[256];
+
+    static {
+        for (int i = 0; i <= 255; i++) {
+            float input = ((float) i) / 255.0f;
+            float output;
+            if (input <= 0.04045f) {
+                output = input / 12.92f;
+            } else {
+                output = (float) Math.pow((input + 0.055f) / 1.055f, 2.4);
+            }
+            int linear = Math.round(output * 65535.0f) & 0xFFFF;
+            RED_LUMA[i] = 0.2125f * linear;
+            GREEN_LUMA[i] = 0.7154f * linear;
+            BLUE_LUMA[i] = 0.0721f * linear;
+        }
+    }
+
+    private RasterKernels() {
+    }
+
+    /**
+     * Converts a packed sRGB value to the byte a TYPE_BYTE_GRAY raster stores for it.
+     *
+     * @param rgb packed sRGB value
+     * @return the linear gray sample
+     */
+    static int luma(int rgb) {
+        float gray = (RED_LUMA[(rgb >> 16) & 0xFF] + GREEN_LUMA[(rgb >> 8) & 0xFF] + BLUE_LUMA[rgb & 0xFF])
+                / 65535.0f;
+        return (int) (gray * 255 + 0.5f);
+    }
+
+    static BufferedImage grayscale(BufferedImage inputImage, ForkJoinPool pool) {
+        return grayscale(PixelReader.of(inputImage), pool);
+    }
+
+    /**
+     * Converts whatever the reader yields, e.g. an {@link ImageView}, to TYPE_BYTE_GRAY.
+     *
+     * @param reader source pixels
+     * @param pool pool to run bands on, or null to run on the calling thread
+     * @return grayscale image
+     */
+    static BufferedImage grayscale(PixelReader reader, ForkJoinPool pool) {
+        int width = reader.width;
+        int height = reader.height;
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] out = bytes(outputImage);
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                int p = y * width;
+                for (int x = 0; x < width; x++) {
+                    out[p + x] = (byte) luma(row[x]);
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    static void putBgr(byte[] out, int p, int rgb) {
+        out[p] = (byte) rgb;
+        out[p + 1] = (byte) (rgb >> 8);
+        out[p + 2] = (byte) (rgb >> 16);
+    }
+
+    static byte[] bytes(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+
+    static int[] ints(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns the array index of the first sample of pixel (0, 0), honouring sub-image translation.
+     *
+     * @param image an image with a single-bank component or packed sample model
+     * @return index into the backing array
+     */
+    static int dataOffset(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        SampleModel sampleModel = raster.getSampleModel();
+        int tx = -raster.getSampleModelTranslateX();
+        int ty = -raster.getSampleModelTranslateY();
+        int offset = raster.getDataBuffer().getOffset();
+        if (sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel csm = (ComponentSampleModel) sampleModel;
+            int minBand = Integer.MAX_VALUE;
+            for (int bandOffset : csm.getBandOffsets()) {
+                minBand = Math.min(minBand, bandOffset);
+            }
+            return offset + ty * csm.getScanlineStride() + tx * csm.getPixelStride() + minBand;
+        }
+        SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel) sampleModel;
+        return offset + ty * sppsm.getScanlineStride() + tx;
+    }
+
+    /**
+     * Returns the distance in array elements between vertically adjacent pixels.
+     *
+     * @param image an image with a single-bank component or packed sample model
+     * @return the scanline stride
+     */
+    static int scanlineStride(BufferedImage image) {
+        SampleModel sampleModel = image.getRaster().getSampleModel();
+        if (sampleModel instanceof ComponentSampleModel) {
+            return ((ComponentSampleModel) sampleModel).getScanlineStride();
+        }
+        return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+    }
+}
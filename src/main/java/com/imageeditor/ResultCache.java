@@ -0,0 +1,185 @@
+package com.imageeditor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Cache of encoded results, addressed by content: the key is a SHA-256 hash of the input
+ * bytes, the normalized operation chain, the output format and the draft flag. The same source
+ * image processed with the same operations is therefore encoded once, whatever its file name, and
+ * the cached bytes are exactly what a fresh run would write.
+ * <p>
+ * Results are held on the heap, evicted least recently used first, weighted by their size, under a
+ * capacity in bytes; see {@link LruCache} for the striping. An optional {@link DiskCache} below it
+ * holds a larger, persistent working set. Every result is stored in both tiers; a lookup that misses
+ * the heap is served from a memory-mapped file and is not copied back onto the heap.
+ */
+final class ResultCache {
+
+    private final LruCache<String, byte[]> entries;
+    private final DiskCache disk;
+
+    /**
+     * Creates an empty cache held on the heap.
+     *
+     * @param capacity the total size of the encoded results it may hold, in bytes
+     */
+    ResultCache(long capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Creates a cache with a heap tier, a disk tier or both.
+     *
+     * @param capacity the total size of the encoded results the heap may hold, in bytes, or 0 for none
+     * @param disk the disk tier, or null for none
+     */
+    ResultCache(long capacity, DiskCache disk) {
+        if (capacity <= 0 && disk == null) {
+            throw new IllegalArgumentException("A result cache needs a heap or a disk tier");
+        }
+        this.entries = capacity > 0 ? new LruCache<>(capacity, bytes -> bytes.length) : null;
+        this.disk = disk;
+    }
+
+    /**
+     * Returns the key of a result. Operation specs are normalized by parsing, so
+     * {@code BLUR:08} and {@code blur:8} share an entry.
+     *
+     * @param input the encoded input image
+     * @param pipeline the operations run on it
+     * @param format the output format name
+     * @param draft whether the input is decoded at reduced resolution
+     * @return the key, 64 hexadecimal digits
+     */
+    static String key(byte[] input, Pipeline pipeline, String format, boolean draft) {
+        MessageDigest digest = sha256();
+        digest.update(input);
+        StringBuilder chain = new StringBuilder();
+        for (Operation operation : pipeline.operations()) {
+            chain.append('\n').append(operation);
+        }
+        chain.append('\n').append(format.toLowerCase(Locale.ROOT)).append(draft ? "\ndraft" : "");
+        return hex(digest.digest(chain.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return the digest
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Formats a hash as lowercase hexadecimal digits.
+     *
+     * @param hash the hash
+     * @return two digits per byte
+     */
+    static String hex(byte[] hash) {
+        StringBuilder out = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns a cached result from the heap, or else from disk.
+     *
+     * @param key the result's key
+     * @return a read-only buffer over the encoded result, or null on a miss
+     */
+    ByteBuffer get(String key) {
+        byte[] bytes = entries == null ? null : entries.get(key);
+        if (bytes != null) {
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+        return disk == null ? null : disk.get(key);
+    }
+
+    /**
+     * Caches a result in every tier, evicting the least recently used results if needed.
+     *
+     * @param key the result's key
+     * @param encoded the encoded result, no longer modified by the caller
+     */
+    void put(String key, byte[] encoded) {
+        if (entries != null) {
+            entries.put(key, encoded);
+        }
+        if (disk != null) {
+            disk.put(key, encoded);
+        }
+    }
+
+    /**
+     * Returns the heap tier's counters and size.
+     *
+     * @return a snapshot of the statistics, or null without a heap tier
+     */
+    LruCache.Stats stats() {
+        return entries == null ? null : entries.stats();
+    }
+
+    /**
+     * Returns the disk tier's counters and size.
+     *
+     * @return a snapshot of the statistics, or null without a disk tier
+     */
+    LruCache.Stats diskStats() {
+        return disk == null ? null : disk.stats();
+    }
+
+    /**
+     * Appends the statistics in the Prometheus text exposition format.
+     *
+     * @param out where to append the metrics
+     */
+    void writeMetrics(StringBuilder out) {
+        LruCache.Stats memory = stats();
+        LruCache.Stats disk = diskStats();
+        if (memory != null) {
+            Metrics.cache(out, "imageeditor_result_cache", "result cache in memory", memory);
+        }
+        if (disk != null) {
+            Metrics.cache(out, "imageeditor_result_cache_disk", "result cache on disk", disk);
+        }
+        long saved = (memory == null ? 0 : memory.hitWeight) + (disk == null ? 0 : disk.hitWeight);
+        Metrics.metric(out, "imageeditor_result_cache_bytes_saved_total", "counter",
+                "Encoded bytes served from the cache instead of being recomputed", saved);
+    }
+
+    /**
+     * Describes the statistics in one line for logs.
+     *
+     * @return e.g. {@code Result cache: 12 hits, 3 misses (80.0% hit rate), 0 evictions, 4.2 MB saved}
+     */
+    String summary() {
+        LruCache.Stats memory = stats();
+        LruCache.Stats disk = diskStats();
+        StringBuilder out = new StringBuilder("Result cache:");
+        long saved = 0;
+        if (memory != null) {
+            out.append(String.format(Locale.ROOT, " %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                    memory.hits, memory.misses, memory.hitRate() * 100, memory.evictions));
+            saved += memory.hitWeight;
+        }
+        if (disk != null) {
+            out.append(String.format(Locale.ROOT, "%s %d on disk, %d disk misses, %d evicted from disk",
+                    memory != null ? ";" : "", disk.hits, disk.misses, disk.evictions));
+            saved += disk.hitWeight;
+        }
+        return out.append(String.format(Locale.ROOT, ", %.1f MB saved", saved / 1048576.0)).toString();
+    }
+}
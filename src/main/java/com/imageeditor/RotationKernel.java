@@ -0,0 +1,116 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Single-pass 90, 180 and 270 degree rotations.
+ * <p>
+ * Quarter turns read a strip of {@link #TILE} source rows, then transpose it into the
+ * destination one TILE x TILE tile at a time. A 32 x 32 tile of ints is 4 KB on each side, so the
+ * strided source reads and the contiguous destination writes of a tile both stay resident in L1,
+ * and each pixel is read and written exactly once.
+ */
+final class RotationKernel {
+
+    /** Tile edge in pixels. */
+    static final int TILE = 32;
+
+    private RotationKernel() {
+    }
+
+    /**
+     * Rotates an image 90 degrees clockwise: destination (x, y) takes source (y, height - 1 - x).
+     *
+     * @param inputImage the image to rotate
+     * @param pool pool to run tile columns on, or null to run on the calling thread
+     * @return rotated TYPE_INT_RGB image
+     */
+    static BufferedImage rotateRight(BufferedImage inputImage, ForkJoinPool pool) {
+        return quarterTurn(inputImage, true, pool);
+    }
+
+    /**
+     * Rotates an image 90 degrees counter-clockwise: destination (x, y) takes source (width - 1 - y, x).
+     *
+     * @param inputImage the image to rotate
+     * @param pool pool to run tile columns on, or null to run on the calling thread
+     * @return rotated TYPE_INT_RGB image
+     */
+    static BufferedImage rotateLeft(BufferedImage inputImage, ForkJoinPool pool) {
+        return quarterTurn(inputImage, false, pool);
+    }
+
+    /**
+     * Rotates an image 180 degrees by writing each source row reversed into the mirrored row.
+     *
+     * @param inputImage the image to rotate
+     * @param pool pool to run row bands on, or null to run on the calling thread
+     * @return rotated TYPE_INT_RGB image
+     */
+    static BufferedImage rotate180(BufferedImage inputImage, ForkJoinPool pool) {
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        PixelReader reader = PixelReader.of(inputImage);
+        int[] out = RasterKernels.ints(outputImage);
+        BandExecutor.run(pool, height, 1, (long) width * height, (y0, y1) -> {
+            int[] row = new int[width];
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                int p = (height - y) * width - 1;
+                for (int x = 0; x < width; x++) {
+                    out[p - x] = row[x] & 0xFFFFFF;
+                }
+            }
+        });
+        return outputImage;
+    }
+
+    /**
+     * Splits the work by source columns, i.e. destination rows, in multiples of TILE, so every band
+     * writes its own contiguous block of the destination.
+     */
+    private static BufferedImage quarterTurn(BufferedImage inputImage, boolean clockwise, ForkJoinPool pool) {
+        int width = inputImage.getWidth();
+        int height = inputImage.getHeight();
+        BufferedImage outputImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+        PixelReader reader = PixelReader.of(inputImage);
+        int[] out = RasterKernels.ints(outputImage);
+        BandExecutor.run(pool, width, TILE, (long) width * height,
+                (from, to) -> quarterTurnColumns(reader, out, clockwise, from, to));
+        return outputImage;
+    }
+
+    private static void quarterTurnColumns(PixelReader reader, int[] out, boolean clockwise, int from, int to) {
+        int width = reader.width;
+        int height = reader.height;
+        int[][] strip = new int[TILE][to - from];
+
+        for (int y0 = 0; y0 < height; y0 += TILE) {
+            int rows = Math.min(TILE, height - y0);
+            for (int i = 0; i < rows; i++) {
+                reader.readSpan(from, y0 + i, to - from, strip[i]);
+            }
+            for (int x0 = from; x0 < to; x0 += TILE) {
+                int x1 = Math.min(x0 + TILE, to);
+                for (int x = x0; x < x1; x++) {
+                    int column = x - from;
+                    if (clockwise) {
+                        // Source column x becomes destination row x, filled right to left.
+                        int p = x * height + height - 1 - y0;
+                        for (int i = 0; i < rows; i++) {
+                            out[p - i] = strip[i][column] & 0xFFFFFF;
+                        }
+                    } else {
+                        // Source column x becomes destination row width - 1 - x, filled left to right.
+                        int p = (width - 1 - x) * height + y0;
+                        for (int i = 0; i < rows; i++) {
+                            out[p + i] = strip[i][column] & 0xFFFFFF;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.imageeditor;
+
+/**
+ * Runtime switch between the scalar kernels and the {@link VectorKernels} SIMD backend.
+ * <p>
+ * The backend needs the incubating {@code jdk.incubator.vector} module, which is only resolved
+ * when the JVM is started with {@code --add-modules jdk.incubator.vector}. Without it the vector
+ * classes are never loaded and every kernel stays scalar. When the module is present the backend
+ * is on by default and can be turned off with {@code -Dimageeditor.simd=false}.
+ */
+final class SimdSupport {
+
+    /** System property that disables the SIMD backend when set to {@code false}. */
+    static final String PROPERTY = "imageeditor.simd";
+
+    private static final boolean AVAILABLE = probe();
+
+    private static volatile boolean enabled = AVAILABLE && !"false".equalsIgnoreCase(System.getProperty(PROPERTY));
+
+    private SimdSupport() {
+    }
+
+    private static boolean probe() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            // Narrower vectors hold too few lanes to pay for the conversions around them.
+            return VectorKernels.LANES >= 8;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tells whether the vector module is present in this JVM.
+     *
+     * @return true if the SIMD backend can be used
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Tells whether kernels should currently take the SIMD path.
+     *
+     * @return true if the backend is available and enabled
+     */
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the SIMD backend on or off. Turning it on has no effect when the module is absent.
+     *
+     * @param on whether kernels should use the SIMD backend
+     */
+    static void setEnabled(boolean on) {
+        enabled = on && AVAILABLE;
+    }
+}
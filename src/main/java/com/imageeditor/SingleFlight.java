@@ -0,0 +1,100 @@
+package com.imageeditor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent computations of the same key: the first caller runs the computation on its
+ * own thread, and callers that arrive with the same key while it is in flight wait for its result
+ * instead of repeating the work. The result, or the failure, fans out to all of them through a
+ * {@link CompletableFuture}. Once a computation finishes its key is forgotten, so results are not
+ * retained here; pair it with a cache for that, storing the result before it returns.
+ * <p>
+ * The result is handed to every waiter as is, so it must not be modified once returned.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+final class SingleFlight<K, V> {
+
+    /**
+     * A computation that may fail with an I/O error.
+     *
+     * @param <V> the result type
+     */
+    interface Computation<V> {
+
+        /**
+         * Computes the result.
+         *
+         * @return the result
+         * @throws IOException if it cannot be computed
+         */
+        V compute() throws IOException;
+    }
+
+    private final Map<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Returns the result for a key, computing it unless a computation for the key is already in
+     * flight, in which case this waits for that one.
+     *
+     * @param key identifies the result
+     * @param computation computes the result, run at most once per flight
+     * @return the result, shared with every caller of the same flight
+     * @throws IOException if the computation failed with one, or the wait was interrupted
+     */
+    V run(K key, Computation<V> computation) throws IOException {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = flights.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        try {
+            V result = computation.compute();
+            flight.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Returns how many callers have waited for another caller's computation instead of running
+     * their own.
+     *
+     * @return the number of coalesced calls
+     */
+    long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) throws IOException {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request");
+        } catch (ExecutionException e) {
+            // Rethrown as is, so every waiter reports the same error as the caller that ran it.
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.imageeditor;
+
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Runs a {@link Pipeline} of row-local operations one horizontal strip at a time, for images that
+ * do not fit in the heap.
+ * <p>
+ * The output is handed to the encoder as a {@link RenderedImage} whose rows are produced on demand:
+ * when the encoder asks for a row outside the current strip, that strip is decoded on its own with
+ * {@link ImageReadParam#setSourceRegion(Rectangle)}, run through the pipeline and kept until the
+ * encoder moves past it. Peak memory is therefore one decoded and one processed strip, whatever
+ * the size of the image. Only point operations, {@code flip-horizontal} and {@code blur} qualify,
+ * since each output row depends on its own source row, or for blur on its own row of blocks; strips
+ * are a multiple of every blur block size so no block straddles two of them.
+ * <p>
+ * The JDK's PNG, BMP and TIFF writers pull the image a few rows at a time; its JPEG and GIF writers
+ * copy the whole raster first, which would defeat the purpose, so they are not accepted.
+ */
+final class StreamingPipeline {
+
+    /** Output formats whose writers read the image row by row. */
+    static final Set<String> FORMATS = Set.of("png", "bmp", "tif", "tiff");
+
+    /**
+     * Default number of pixels per strip, 12 MB as BGR bytes. JPEG and PNG readers decode a source
+     * region by running through every row above it, so fewer, taller strips cost less decode time.
+     */
+    static final int STRIP_PIXELS = 1 << 22;
+
+    private final Pipeline pipeline;
+    private final int alignment;
+    private final int stripPixels;
+
+    /**
+     * Creates a streaming runner with the default strip size.
+     *
+     * @param pipeline the operations to run on every strip
+     * @throws IllegalArgumentException if an operation needs rows outside its strip
+     */
+    StreamingPipeline(Pipeline pipeline) {
+        this(pipeline, STRIP_PIXELS);
+    }
+
+    /**
+     * Creates a streaming runner.
+     *
+     * @param pipeline the operations to run on every strip
+     * @param stripPixels approximate number of pixels decoded at once
+     * @throws IllegalArgumentException if an operation needs rows outside its strip
+     */
+    StreamingPipeline(Pipeline pipeline, int stripPixels) {
+        int lcm = 1;
+        for (Operation operation : pipeline.operations()) {
+            if (operation.kind == Operation.Kind.BLUR) {
+                int blockSize = (int) operation.argument;
+                lcm = lcm / gcd(lcm, blockSize) * blockSize;
+            } else if (operation.kind.category != Operation.Category.POINT
+                    && operation.kind != Operation.Kind.FLIP_HORIZONTAL) {
+                throw new IllegalArgumentException("Operation cannot be streamed - " + operation);
+            }
+        }
+        this.pipeline = pipeline;
+        this.alignment = lcm;
+        this.stripPixels = stripPixels;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Returns how many rows each strip holds for the given image width.
+     *
+     * @param width the image width
+     * @return a positive multiple of every blur block size
+     */
+    int stripRows(int width) {
+        int rows = Math.max(1, stripPixels / width);
+        return (rows + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * Streams {@code input} through the pipeline into {@code output}, whose extension picks the format.
+     *
+     * @param input the image file to read
+     * @param output the file to write
+     * @param pool the pool to run each strip on, or null to run on the calling thread
+     * @throws IOException if the input cannot be decoded or the output cannot be encoded
+     * @throws IllegalArgumentException if the output format cannot be written row by row
+     */
+    void run(File input, File output, ForkJoinPool pool) throws IOException {
+        String format = Pipeline.formatOf(output);
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Streaming needs a png, bmp or tiff output - " + output);
+        }
+        try (ImageInputStream stream = ImageIO.createImageInputStream(input)) {
+            Iterator<ImageReader> readers = stream == null
+                    ? Collections.emptyIterator()
+                    : ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                throw new IOException("Could not read image file - " + input);
+            }
+            ImageReader reader = readers.next();
+            ImageWriter writer = ImageIO.getImageWritersBySuffix(format).next();
+            try {
+                // Strips are read one region at a time, so the reader must be able to seek back.
+                reader.setInput(stream, false, true);
+                Strips strips = new Strips(reader, pool);
+                if (!writer.getOriginatingProvider().canEncodeImage(strips)) {
+                    if (!strips.getColorModel().hasAlpha()) {
+                        throw new IOException("Cannot encode this image as " + format + " - " + output);
+                    }
+                    strips = new Strips(reader, pool, true);
+                }
+                output.delete();
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+                    writer.setOutput(out);
+                    writer.write(strips);
+                }
+            } finally {
+                writer.dispose();
+                reader.dispose();
+            }
+        }
+    }
+
+    /** The pipeline output, computed one strip at a time as the encoder asks for rows. */
+    private final class Strips implements RenderedImage {
+
+        private final ImageReader reader;
+        private final ForkJoinPool pool;
+        private final boolean opaque;
+        private final int width;
+        private final int height;
+        private final int rows;
+        private final ImageReadParam param;
+        private BufferedImage strip;
+        private int stripY = -1;
+
+        Strips(ImageReader reader, ForkJoinPool pool) throws IOException {
+            this(reader, pool, false);
+        }
+
+        Strips(ImageReader reader, ForkJoinPool pool, boolean opaque) throws IOException {
+            this.reader = reader;
+            this.pool = pool;
+            this.opaque = opaque;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            this.rows = Math.min(stripRows(width), height);
+            this.param = reader.getDefaultReadParam();
+            load(0);
+        }
+
+        /** Makes the strip holding row {@code y} current, decoding it unless it already is. */
+        private BufferedImage load(int y) throws IOException {
+            int top = y / rows * rows;
+            if (top != stripY) {
+                strip = null;
+                param.setSourceRegion(new Rectangle(0, top, width, Math.min(rows, height - top)));
+                BufferedImage result = pipeline.apply(reader.read(0, param), pool);
+                strip = opaque ? Pipeline.opaque(result) : result;
+                stripY = top;
+            }
+            return strip;
+        }
+
+        private BufferedImage strip(int y) {
+            try {
+                return load(y);
+            } catch (IOException e) {
+                // RenderedImage cannot throw checked exceptions; ImageWriter.write rethrows this.
+                throw new IllegalStateException("Could not decode rows from " + y, e);
+            }
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            BufferedImage first = strip(rect.y);
+            if (rect.y + rect.height <= stripY + first.getHeight()) {
+                return first.getRaster().createChild(rect.x, rect.y - stripY, rect.width, rect.height,
+                        rect.x, rect.y, null);
+            }
+            return copyData(first.getRaster().createCompatibleWritableRaster(rect.x, rect.y, rect.width,
+                    rect.height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            int x = raster.getMinX();
+            int y = raster.getMinY();
+            int end = y + raster.getHeight();
+            while (y < end) {
+                BufferedImage current = strip(y);
+                int count = Math.min(end, stripY + current.getHeight()) - y;
+                raster.setRect(current.getRaster().createChild(x, y - stripY, raster.getWidth(), count,
+                        x, y, null));
+                y += count;
+            }
+            return raster;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(width, height));
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            int top = tileY * rows;
+            return getData(new Rectangle(0, top, width, Math.min(rows, height - top)));
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return strip.getColorModel();
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return strip.getSampleModel().createCompatibleSampleModel(width, rows);
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + rows - 1) / rows;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return rows;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+    }
+}
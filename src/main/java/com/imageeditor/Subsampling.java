@@ -0,0 +1,97 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reduced-resolution decoding for pipelines that pixelate the image before anything else looks at
+ * its detail.
+ * <p>
+ * A {@code blur:N} replaces each N x N block with one colour. When only point operations run before
+ * it, the block colour can be estimated from every s-th pixel in each direction, where s divides N:
+ * the decoder is asked for that subsampled image, the blur runs on it with blocks of N / s, and each
+ * result pixel is expanded back to s x s, which puts the blocks exactly where the full-resolution
+ * blur would have. The colours are averages of fewer samples, so the result is approximate; at
+ * least {@link #MIN_SAMPLES} samples are kept along each block edge.
+ */
+final class Subsampling {
+
+    /** Fewest source pixels kept along each edge of a blur block. */
+    static final int MIN_SAMPLES = 2;
+
+    private Subsampling() {
+    }
+
+    /**
+     * Returns the index of the blur that a subsampled decode feeds, if only point operations precede it.
+     *
+     * @param operations the pipeline's operations
+     * @return the index of the first blur, or -1 if there is none or something else comes first
+     */
+    static int blurIndex(List<Operation> operations) {
+        for (int i = 0; i < operations.size(); i++) {
+            Operation operation = operations.get(i);
+            if (operation.kind == Operation.Kind.BLUR) {
+                return i;
+            }
+            if (operation.kind.category != Operation.Category.POINT) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the decoder subsampling a pipeline can use: the largest divisor of the first blur's
+     * block size that still keeps {@link #MIN_SAMPLES} samples per block edge.
+     *
+     * @param operations the pipeline's operations
+     * @return the subsampling factor, 1 when the pipeline needs every source pixel
+     */
+    static int factor(List<Operation> operations) {
+        int index = blurIndex(operations);
+        if (index < 0) {
+            return 1;
+        }
+        int blockSize = (int) operations.get(index).argument;
+        for (int factor = blockSize / MIN_SAMPLES; factor > 1; factor--) {
+            if (blockSize % factor == 0) {
+                return factor;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Scales an image up by repeating every pixel {@code factor} times in each direction, clipped to
+     * the given size.
+     *
+     * @param image the subsampled result
+     * @param factor the subsampling factor
+     * @param width the full-resolution width, at most {@code image.getWidth() * factor}
+     * @param height the full-resolution height, at most {@code image.getHeight() * factor}
+     * @param pool pool to run row bands on, or null to run on the calling thread
+     * @return expanded TYPE_3BYTE_BGR image
+     */
+    static BufferedImage expand(BufferedImage image, int factor, int width, int height, ForkJoinPool pool) {
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        PixelReader reader = PixelReader.of(image);
+        int rowBytes = width * 3;
+        BandExecutor.run(pool, height, factor, (long) width * height, (from, to) -> {
+            int[] row = new int[reader.width];
+            for (int y0 = from; y0 < to; y0 += factor) {
+                reader.readRow(y0 / factor, row);
+                int first = y0 * rowBytes;
+                for (int x = 0; x < width; x++) {
+                    RasterKernels.putBgr(out, first + x * 3, row[x / factor]);
+                }
+                for (int y = y0 + 1; y < Math.min(y0 + factor, to); y++) {
+                    System.arraycopy(out, first, out, y * rowBytes, rowBytes);
+                }
+            }
+        });
+        return outputImage;
+    }
+}
@@ -0,0 +1,108 @@
+package com.imageeditor;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Pixelating blur driven by a summed-area table.
+ * <p>
+ * The table S(y, x) holds the per-channel sum of every pixel above and to the left of (x, y), so the
+ * sum over any block is {@code S(y1, x1) - S(y0, x1) - S(y1, x0) + S(y0, x0)} regardless of its size.
+ * Because blocks sit on a fixed grid, only the table rows at block boundaries are ever read; the
+ * table is therefore accumulated in a single pass over the image while keeping just the previous
+ * boundary row and the running row, i.e. O(width) memory instead of a full-size table.
+ * Blocks that overhang the right or bottom edge are averaged over the pixels they actually cover.
+ */
+final class SummedAreaBlur {
+
+    private SummedAreaBlur() {
+    }
+
+    /**
+     * Replaces every blockSize x blockSize cell of the image with its average colour.
+     *
+     * @param inputImage the image to blur
+     * @param blockSize the edge length of each block, at least 1
+     * @param pool pool to run bands of block rows on, or null to run on the calling thread
+     * @return blurred TYPE_3BYTE_BGR image
+     */
+    static BufferedImage apply(BufferedImage inputImage, int blockSize, ForkJoinPool pool) {
+        return apply(PixelReader.of(inputImage), blockSize, pool);
+    }
+
+    /**
+     * Blurs whatever the reader yields, e.g. an {@link ImageView}.
+     *
+     * @param reader source pixels
+     * @param blockSize the edge length of each block, at least 1
+     * @param pool pool to run bands of block rows on, or null to run on the calling thread
+     * @return blurred TYPE_3BYTE_BGR image
+     */
+    static BufferedImage apply(PixelReader reader, int blockSize, ForkJoinPool pool) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        int width = reader.width;
+        int height = reader.height;
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] out = RasterKernels.bytes(outputImage);
+        BandExecutor.run(pool, height, blockSize, (long) width * height,
+                (from, to) -> blurBand(reader, out, blockSize, from, to));
+        return outputImage;
+    }
+
+    /**
+     * Blurs the block rows in [from, to). The table is accumulated from row {@code from}, which is
+     * a block boundary, so bands are independent of each other.
+     */
+    private static void blurBand(PixelReader reader, byte[] out, int blockSize, int from, int to) {
+        int width = reader.width;
+        int rowBytes = width * 3;
+        int[] row = new int[width];
+        long[] red = new long[width + 1];
+        long[] green = new long[width + 1];
+        long[] blue = new long[width + 1];
+        long[] prevRed = new long[width + 1];
+        long[] prevGreen = new long[width + 1];
+        long[] prevBlue = new long[width + 1];
+
+        for (int y0 = from; y0 < to; y0 += blockSize) {
+            int y1 = Math.min(y0 + blockSize, to);
+            for (int y = y0; y < y1; y++) {
+                reader.readRow(y, row);
+                long r = 0;
+                long g = 0;
+                long b = 0;
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    r += (rgb >> 16) & 0xFF;
+                    g += (rgb >> 8) & 0xFF;
+                    b += rgb & 0xFF;
+                    red[x + 1] += r;
+                    green[x + 1] += g;
+                    blue[x + 1] += b;
+                }
+            }
+
+            int first = y0 * rowBytes;
+            for (int x0 = 0; x0 < width; x0 += blockSize) {
+                int x1 = Math.min(x0 + blockSize, width);
+                long area = (long) (y1 - y0) * (x1 - x0);
+                int avgRed = (int) ((red[x1] - red[x0] - prevRed[x1] + prevRed[x0]) / area);
+                int avgGreen = (int) ((green[x1] - green[x0] - prevGreen[x1] + prevGreen[x0]) / area);
+                int avgBlue = (int) ((blue[x1] - blue[x0] - prevBlue[x1] + prevBlue[x0]) / area);
+                int avg = avgRed << 16 | avgGreen << 8 | avgBlue;
+                for (int p = first + x0 * 3; p < first + x1 * 3; p += 3) {
+                    RasterKernels.putBgr(out, p, avg);
+                }
+            }
+            for (int y = y0 + 1; y < y1; y++) {
+                System.arraycopy(out, first, out, y * rowBytes, rowBytes);
+            }
+
+            System.arraycopy(red, 0, prevRed, 0, width + 1);
+            System.arraycopy(green, 0, prevGreen, 0, width + 1);
+            System.arraycopy(blue, 0, prevBlue, 0, width + 1);
+        }
+    }
+}
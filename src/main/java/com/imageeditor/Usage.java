@@ -0,0 +1,111 @@
+package com.imageeditor;
+
+/**
+ * The help text of {@link ImageEditor}'s command line.
+ */
+final class Usage {
+
+    private Usage() {
+    }
+
+    /**
+     * Displays the help menu with available operations.
+     */
+    static void print() {
+        System.out.println("Image Editor - Command Line Image Processing Tool");
+        System.out.println("================================================");
+        System.out.println();
+        System.out.println("Usage: java -jar image-editor.jar [options]");
+        System.out.println("       java -jar image-editor.jar --in FILE [--op OP]... [--out FILE] [options]");
+        System.out.println("       java -jar image-editor.jar --batch DIR|GLOB [--op OP]... [--out-dir DIR] [options]");
+        System.out.println("       java -jar image-editor.jar --manifest FILE [--log FILE] [options]");
+        System.out.println("       java -jar image-editor.jar --serve PORT [options]");
+        System.out.println("       java -jar image-editor.jar --daemon SOCKET");
+        System.out.println("       java -cp image-editor.jar com.imageeditor.DaemonClient SOCKET [options]");
+        System.out.println();
+        System.out.println("Interactive Mode (no arguments):");
+        System.out.println("  Run without arguments to enter interactive mode.");
+        System.out.println();
+        System.out.println("Pipeline Mode:");
+        System.out.println("  Decodes --in once, applies every --op in order and encodes once to --out");
+        System.out.println("  (default output.jpg; the extension picks the format, e.g. .png).");
+        System.out.println("  Example: --in a.jpg --op rotate-right --op grayscale --op blur:8 --out b.jpg");
+        System.out.println();
+        System.out.println("Batch Mode:");
+        System.out.println("  Runs the --op pipeline over every image in a directory, or every file matching");
+        System.out.println("  a glob such as 'photos/**.jpg', in one JVM. Decoding, processing and encoding");
+        System.out.println("  overlap; results keep their relative path and name under --out-dir.");
+        System.out.println();
+        System.out.println("Manifest Mode:");
+        System.out.println("  Runs the jobs of a JSONL file, one per line, read incrementally:");
+        System.out.println("    {\"input\": \"a.jpg\", \"ops\": [\"blur:8\"], \"output\": \"out/a.png\"}");
+        System.out.println("  Relative paths are resolved against the manifest's directory. One JSON result");
+        System.out.println("  line per job, with status and timings, goes to --log (default standard output).");
+        System.out.println();
+        System.out.println("Server Mode:");
+        System.out.println("  Serves POST /process?op=OP&op=OP&format=png with the image as the body and");
+        System.out.println("  the encoded result as the response; GET /health answers ok. The JVM stays");
+        System.out.println("  warm between requests. POST /probe takes the same parameters and answers with");
+        System.out.println("  what --probe prints. Example:");
+        System.out.println("    curl --data-binary @a.jpg 'localhost:8080/process?op=blur:8' -o b.jpg");
+        System.out.println();
+        System.out.println("Daemon Mode:");
+        System.out.println("  Keeps a warm JVM listening on a Unix domain socket. DaemonClient sends it the");
+        System.out.println("  rest of its command line, which means what it means here, with paths relative");
+        System.out.println("  to the client's directory, and relays the output and exit status. Commands run");
+        System.out.println("  one at a time; interactive and server modes are not available through it.");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  --in FILE     Input image (pipeline mode)");
+        System.out.println("  --op OP       Operation to apply, repeatable (pipeline mode)");
+        System.out.println("  --out FILE    Output image (pipeline mode)");
+        System.out.println("  --stream      Process strip by strip to bound memory (pipeline mode; point ops,");
+        System.out.println("                flip-horizontal and blur only; .png, .bmp or .tif output)");
+        System.out.println("  --draft       Decode at reduced resolution when a blur discards the detail anyway");
+        System.out.println("                (pipeline mode; faster, block colours are approximate)");
+        System.out.println("  --probe       Read only the header of --in, or of each --batch image, and print its");
+        System.out.println("                size, colour type and the estimated memory and cost of the --op");
+        System.out.println("                pipeline as JSON, without processing it");
+        System.out.println("  --threads N   Process large images on N worker threads (default 1)");
+        System.out.println("  --batch PATH  Directory or glob of input images (batch mode)");
+        System.out.println("  --out-dir DIR Directory for results (batch mode, default output)");
+        System.out.println("  --jobs N      Threads for each of the decode, process and encode stages");
+        System.out.println("                (batch mode, default 1), or jobs run at once (manifest and");
+        System.out.println("                server modes, default the CPUs available to the container)");
+        System.out.println("  --manifest F  JSONL job list (manifest mode)");
+        System.out.println("  --log FILE    Result log (manifest mode)");
+        System.out.println("  --memory MB   Memory that images in flight may use; jobs wait until theirs fits");
+        System.out.println("                (batch, manifest and server modes, default half the maximum heap)");
+        System.out.println("  --serve PORT  Listen for HTTP requests on PORT (server mode)");
+        System.out.println("  --daemon SOCK Run commands sent by DaemonClient to the socket file SOCK");
+        System.out.println("  --cache MB    Keep up to MB of encoded results in memory, keyed by a hash of the");
+        System.out.println("                input bytes and the operations (manifest and server modes)");
+        System.out.println("  --cache-dir D Also keep encoded results as files in D, reused after a restart");
+        System.out.println("  --cache-disk MB Size of the files in --cache-dir (default 1024)");
+        System.out.println("  --decode-cache MB Keep up to MB of decoded images in memory, so an input processed");
+        System.out.println("                again with other operations is not decoded again (manifest and");
+        System.out.println("                server modes)");
+        System.out.println("  -h, --help    Show this help");
+        System.out.println();
+        System.out.println("Available Operations:");
+        System.out.println("  1 - Print pixel RGB values");
+        System.out.println("  2 - Convert to grayscale");
+        System.out.println("  3 - Adjust brightness (percentage)");
+        System.out.println("  4 - Rotate right (90 degrees clockwise)");
+        System.out.println("  5 - Rotate left (90 degrees counter-clockwise)");
+        System.out.println("  6 - Flip horizontal (left-right mirror)");
+        System.out.println("  7 - Flip vertical (top-bottom mirror)");
+        System.out.println("  8 - Apply blur effect");
+        System.out.println("  9 - Rotate 180 degrees");
+        System.out.println();
+        System.out.println("Pipeline Operations:");
+        System.out.println("  grayscale, brightness:PERCENT, contrast:PERCENT, gamma:VALUE, invert,");
+        System.out.println("  rotate-right, rotate-left, rotate-180, flip-horizontal, flip-vertical, auto-orient,");
+        System.out.println("  crop:X,Y,WIDTH,HEIGHT, blur:BLOCK_SIZE");
+        System.out.println("  Consecutive grayscale/brightness/contrast/gamma/invert steps run as one pass.");
+        System.out.println("  Rotations, flips and crops are not copied; the next step reads through them.");
+        System.out.println("  auto-orient applies the JPEG's EXIF orientation.");
+        System.out.println();
+        System.out.println("Output: Results are saved to 'output.jpg' unless --out is given");
+    }
+}
@@ -0,0 +1,98 @@
+package com.imageeditor;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the per-row inner loops, built on the incubating Vector API.
+ * <p>
+ * Each method works on one row and gives bit-identical output to the scalar kernel it replaces.
+ * Lanes left over at the end of a row are handled by a scalar tail. Only kernels that measured
+ * faster than their scalar form are here. Grayscale stays scalar, since gathering from the sRGB
+ * curve tables loses to plain lookups, and so does blur, whose running sums are already bound by
+ * memory traffic. This class must only be touched when
+ * {@link SimdSupport#isEnabled()} is true, which needs at least eight int lanes.
+ */
+final class VectorKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    /** Lanes per int vector. */
+    static final int LANES = INTS.length();
+
+    /** Bytes for one int vector's lanes, so channel bytes load and store without a scratch array. */
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class,
+            VectorShape.forBitSize(Math.max(64, LANES * 8)));
+
+    /** Largest product {@code c * percentage} that still matters once the result is clamped. */
+    private static final int DIVIDEND_LIMIT = 100 * 256;
+
+    /** {@code ceil(2^19 / 100)}, the fixed-point reciprocal of 100. */
+    private static final int RECIPROCAL_100 = 5243;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Applies {@code c + (c * percentage) / 100}, clamped to 0..255, to every channel of a row and
+     * writes the result as B, G, R bytes. The row is first unpacked into the destination, which the
+     * scalar kernel does anyway, and then adjusted there by {@link #brightnessBytes}: spreading
+     * vector lanes into interleaved bytes one pixel at a time costs more than it saves.
+     *
+     * @param row packed sRGB values
+     * @param length number of pixels
+     * @param percentage brightness adjustment
+     * @param out destination bytes
+     * @param outOffset index of the first destination byte
+     */
+    static void brightnessRow(int[] row, int length, int percentage, byte[] out, int outOffset) {
+        for (int x = 0; x < length; x++) {
+            RasterKernels.putBgr(out, outOffset + x * 3, row[x]);
+        }
+        brightnessBytes(out, outOffset, length * 3, percentage, out, outOffset);
+    }
+
+    /**
+     * Applies {@code c + (c * percentage) / 100}, clamped to 0..255, to a run of channel bytes, as
+     * laid out in a TYPE_3BYTE_BGR row.
+     *
+     * @param in source channel bytes
+     * @param inOffset index of the first source byte
+     * @param length number of bytes
+     * @param percentage brightness adjustment
+     * @param out destination bytes
+     * @param outOffset index of the first destination byte
+     */
+    static void brightnessBytes(byte[] in, int inOffset, int length, int percentage, byte[] out, int outOffset) {
+        int i = 0;
+        for (int bound = INTS.loopBound(length); i < bound; i += LANES) {
+            IntVector channel = ((IntVector) ByteVector.fromArray(BYTES, in, inOffset + i)
+                    .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+            ((ByteVector) scale(channel, percentage).convertShape(VectorOperators.I2B, BYTES, 0))
+                    .intoArray(out, outOffset + i);
+        }
+        for (; i < length; i++) {
+            out[outOffset + i] = (byte) scale(in[inOffset + i] & 0xFF, percentage);
+        }
+    }
+
+    private static int scale(int channel, int percentage) {
+        return Math.min(255, Math.max(0, channel + (channel * percentage) / 100));
+    }
+
+    /**
+     * Vector form of {@link #scale(int, int)}. Division has no SIMD instruction, so the quotient is
+     * taken as a multiply and shift: {@code (n * 5243) >>> 19} is {@code n / 100} for
+     * {@code 0 <= n <= 43690}. The product is first clamped to 100 * 256 either way, which cannot
+     * change the clamped result, and the division truncates toward zero like Java's.
+     */
+    private static IntVector scale(IntVector channel, int percentage) {
+        IntVector product = channel.mul(percentage).max(-DIVIDEND_LIMIT).min(DIVIDEND_LIMIT);
+        IntVector sign = product.lanewise(VectorOperators.ASHR, 31);
+        IntVector quotient = product.abs().mul(RECIPROCAL_100).lanewise(VectorOperators.LSHR, 19);
+        return channel.add(quotient.lanewise(VectorOperators.XOR, sign).sub(sign)).max(0).min(255);
+    }
+}
@@ -0,0 +1,64 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for memory admission control.
+ */
+class AdmissionControllerTest {
+
+    private static final long IMAGE = 100 * 50 * AdmissionController.BYTES_PER_PIXEL;
+
+    @Test
+    @DisplayName("The estimate counts the input, the previous output and the output being written")
+    void testEstimate() {
+        assertEquals(IMAGE, estimate(List.of(), false));
+        assertEquals(2 * IMAGE, estimate(List.of("rotate-right", "flip-vertical"), false));
+        assertEquals(2 * IMAGE, estimate(List.of("grayscale", "invert", "gamma:2.2"), false));
+        assertEquals(3 * IMAGE, estimate(List.of("grayscale", "invert", "blur:4"), false));
+        assertEquals(3 * IMAGE, estimate(List.of("blur:4", "rotate-left"), false));
+        assertEquals(IMAGE + 10 * 20 * 4, estimate(List.of("crop:0,0,10,20", "invert"), false));
+        assertEquals(25 * 13 * 4 * 2 + IMAGE, estimate(List.of("blur:8"), true));
+        assertEquals(2 * (IMAGE / 4) + IMAGE, estimate(List.of("invert", "blur:4"), true));
+    }
+
+    @Test
+    @DisplayName("Jobs over the budget wait, and with a maximum wait are rejected with or without a retry")
+    void testAdmission() throws IOException {
+        AdmissionController bounded = new AdmissionController(8192, Duration.ofMillis(20));
+        AdmissionController.Permit first = bounded.acquire(5000);
+
+        AdmissionController.Rejected busy = assertThrows(AdmissionController.Rejected.class,
+                () -> bounded.acquire(5000));
+        assertTrue(busy.retryable);
+        AdmissionController.Rejected huge = assertThrows(AdmissionController.Rejected.class,
+                () -> bounded.acquire(10_000));
+        assertFalse(huge.retryable);
+        bounded.acquire(3000).close();
+        first.close();
+        first.close();
+        try (AdmissionController.Permit again = bounded.acquire(8000)) {
+            assertEquals(8192, bounded.peakBytes());
+        }
+        StringBuilder metrics = new StringBuilder();
+        bounded.writeMetrics(metrics);
+        assertTrue(metrics.indexOf("\nimageeditor_admission_rejected_total 2\n") >= 0, metrics.toString());
+        assertTrue(metrics.indexOf("\nimageeditor_admission_in_use_bytes 0\n") >= 0, metrics.toString());
+
+        AdmissionController unbounded = new AdmissionController(4096);
+        try (AdmissionController.Permit alone = unbounded.acquire(1 << 20)) {
+            assertEquals(4096, unbounded.peakBytes());
+        }
+    }
+
+    private static long estimate(List<String> operations, boolean draft) {
+        return AdmissionController.estimate(new Pipeline(operations), 100, 50, draft);
+    }
+}
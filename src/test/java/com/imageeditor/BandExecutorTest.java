@@ -0,0 +1,94 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that band-parallel execution is deterministic and identical to the serial path.
+ */
+class BandExecutorTest {
+
+    private static final int WIDTH = 641;
+    private static final int HEIGHT = 479;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    @DisplayName("Bands cover the range exactly once on aligned boundaries")
+    void testBandsCoverRange() {
+        List<int[]> bands = Collections.synchronizedList(new ArrayList<>());
+        BandExecutor.run(pool, 1000, 7, BandExecutor.SERIAL_THRESHOLD, (from, to) -> bands.add(new int[] {from, to}));
+
+        assertTrue(bands.size() > 1);
+        bands.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int expected = 0;
+        for (int[] band : bands) {
+            assertEquals(expected, band[0]);
+            assertEquals(0, band[0] % 7);
+            expected = band[1];
+        }
+        assertEquals(1000, expected);
+    }
+
+    @Test
+    @DisplayName("Small images stay on the calling thread")
+    void testSmallImagesRunSerially() {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        BandExecutor.run(pool, 100, 1, BandExecutor.SERIAL_THRESHOLD - 1,
+                (from, to) -> threads.add(Thread.currentThread()));
+
+        assertEquals(List.of(caller), threads);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Parallel output is byte-identical to serial output")
+    void testParallelMatchesSerial(int type) {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, type, type);
+
+        RasterKernelsTest.assertSamePixels(ImageEditor.convertToGrayscale(image),
+                ImageEditor.convertToGrayscale(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.adjustBrightness(image, 35),
+                ImageEditor.adjustBrightness(image, 35, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.rotateRight(image), ImageEditor.rotateRight(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.rotateLeft(image), ImageEditor.rotateLeft(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.rotate180(image), ImageEditor.rotate180(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.flipHorizontal(image), ImageEditor.flipHorizontal(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.flipVertical(image), ImageEditor.flipVertical(image, pool));
+        RasterKernelsTest.assertSamePixels(ImageEditor.applyBlur(image, 7), ImageEditor.applyBlur(image, 7, pool));
+        BufferedImage serial = RasterKernelsTest.copy(image);
+        BufferedImage parallel = RasterKernelsTest.copy(image);
+        RasterKernelsTest.assertSamePixels(
+                ImageEditor.flipHorizontalInPlace(ImageEditor.flipVerticalInPlace(serial)),
+                ImageEditor.flipHorizontalInPlace(ImageEditor.flipVerticalInPlace(parallel, pool), pool));
+    }
+}
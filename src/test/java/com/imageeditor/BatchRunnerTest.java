@@ -0,0 +1,127 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the staged batch runner.
+ */
+class BatchRunnerTest {
+
+    private static final List<String> OPERATIONS = List.of("rotate-left", "brightness:25", "blur:3");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Every image in a directory is processed like a single pipeline run")
+    void testDirectory() throws IOException, InterruptedException {
+        Path input = Files.createDirectories(dir.resolve("in"));
+        for (int i = 0; i < 6; i++) {
+            int type = i % 2 == 0 ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_INT_RGB;
+            write(RasterKernelsTest.randomImage(20 + i * 7, 31 - i, type, i), input.resolve("image" + i + ".png"));
+        }
+        Files.writeString(input.resolve("notes.txt"), "not an image");
+        Files.writeString(input.resolve("broken.png"), "not a png either");
+        Path output = dir.resolve("out");
+
+        List<Path> inputs = BatchRunner.inputs(input.toString());
+        BatchRunner runner = new BatchRunner(new Pipeline(OPERATIONS), false, 2, 1 << 26, null);
+        int failures = runner.run(inputs, BatchRunner.base(input.toString()), output);
+
+        assertEquals(7, inputs.size());
+        assertEquals(1, failures);
+        assertFalse(Files.exists(output.resolve("broken.png")));
+        for (int i = 0; i < 6; i++) {
+            BufferedImage expected = new Pipeline(OPERATIONS).apply(ImageIO.read(inputs.get(i + 1).toFile()), null);
+            RasterKernelsTest.assertSamePixels(expected, ImageIO.read(output.resolve("image" + i + ".png").toFile()));
+        }
+    }
+
+    @Test
+    @DisplayName("Images in flight never exceed the memory budget")
+    void testMemoryBudget() throws IOException, InterruptedException {
+        for (int i = 0; i < 8; i++) {
+            write(RasterKernelsTest.randomImage(64, 64, BufferedImage.TYPE_INT_RGB, i), dir.resolve(i + ".png"));
+        }
+        long budget = 3 * AdmissionController.estimate(new Pipeline(OPERATIONS), 64, 64, false);
+
+        BatchRunner runner = new BatchRunner(new Pipeline(OPERATIONS), false, 4, budget, null);
+        int failures = runner.run(BatchRunner.inputs(dir.toString()), dir, dir.resolve("out"));
+
+        assertEquals(0, failures);
+        assertTrue(runner.peakBytes() <= budget, "peak " + runner.peakBytes());
+        assertEquals(8, BatchRunner.inputs(dir.resolve("out").toString()).size());
+
+        BatchRunner tight = new BatchRunner(new Pipeline(OPERATIONS), false, 2, 1024, null);
+        assertEquals(0, tight.run(BatchRunner.inputs(dir.toString()), dir, dir.resolve("tight")));
+        assertEquals(1024, tight.peakBytes());
+    }
+
+    @Test
+    @DisplayName("Globs match recursively and results keep their relative paths")
+    void testGlob() throws IOException, InterruptedException {
+        write(RasterKernelsTest.randomImage(9, 9, BufferedImage.TYPE_3BYTE_BGR, 1), dir.resolve("a/x.png"));
+        write(RasterKernelsTest.randomImage(9, 9, BufferedImage.TYPE_3BYTE_BGR, 2), dir.resolve("a/b/y.png"));
+        write(RasterKernelsTest.randomImage(9, 9, BufferedImage.TYPE_3BYTE_BGR, 3), dir.resolve("a/b/z.bmp"));
+        String glob = dir.resolve("a") + "/**.png";
+
+        List<Path> inputs = BatchRunner.inputs(glob);
+
+        assertEquals(List.of(dir.resolve("a/b/y.png"), dir.resolve("a/x.png")), inputs);
+        assertEquals(dir.resolve("a"), BatchRunner.base(glob));
+        assertEquals(0, ImageEditor.run(new String[] {
+            "--batch", glob, "--op", "invert", "--out-dir", dir.resolve("out").toString(), "--jobs", "2"
+        }));
+        assertTrue(Files.exists(dir.resolve("out/b/y.png")));
+        assertTrue(Files.exists(dir.resolve("out/x.png")));
+        assertEquals(1, ImageEditor.run(new String[] {"--batch", dir.resolve("none/*.png").toString()}));
+        assertEquals(1, ImageEditor.run(new String[] {"--batch", glob, "--jobs", "0"}));
+    }
+
+    @Test
+    @DisplayName("An Error ends the batch with every worker stopped instead of hanging a stage")
+    void testError() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            write(RasterKernelsTest.randomImage(512, 512, BufferedImage.TYPE_INT_RGB, i), dir.resolve(i + ".png"));
+        }
+        long budget = AdmissionController.estimate(new Pipeline(OPERATIONS), 512, 512, false);
+        ForkJoinPool pool = new ForkJoinPool(2) {
+            @Override
+            public <T> T invoke(ForkJoinTask<T> task) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+        };
+
+        try {
+            for (int jobs : new int[] {1, 3}) {
+                BatchRunner runner = new BatchRunner(new Pipeline(OPERATIONS), false, jobs, budget, pool);
+                List<Path> inputs = BatchRunner.inputs(dir.toString());
+                OutOfMemoryError error = assertTimeoutPreemptively(Duration.ofSeconds(60), () -> assertThrows(
+                        OutOfMemoryError.class, () -> runner.run(inputs, dir, dir.resolve("out"))));
+                assertEquals("Java heap space", error.getMessage());
+                assertFalse(Files.exists(dir.resolve("out")));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void write(BufferedImage image, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        ImageIO.write(image, "png", file.toFile());
+    }
+}
@@ -0,0 +1,71 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the table-driven brightness engine.
+ */
+class BrightnessLutTest {
+
+    private static final int SIZE = 1024;
+
+    /**
+     * Allocation allowed beyond the output raster: the table, a row buffer and the image objects,
+     * but not a row buffer per row or a scratch plane.
+     */
+    private static final long OVERHEAD_BYTES = 64 * 1024;
+
+    @Test
+    @DisplayName("Table matches the integer brightness formula for every channel value")
+    void testTableMatchesFormula() {
+        for (int percentage = -150; percentage <= 300; percentage += 7) {
+            byte[] table = BrightnessLut.table(percentage);
+            for (int c = 0; c < 256; c++) {
+                int expected = Math.min(255, Math.max(0, c + (c * percentage) / 100));
+                assertEquals(expected, table[c] & 0xFF);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY
+    })
+    @DisplayName("Table brightness allocates nothing per pixel beyond the output raster")
+    void testZeroAllocationPerPixel(int type) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        BufferedImage image = RasterKernelsTest.randomImage(SIZE, SIZE, type, 11);
+        long outputBytes = (long) SIZE * SIZE * 3;
+        boolean simd = SimdSupport.isEnabled();
+        SimdSupport.setEnabled(false);
+
+        long allocated;
+        BufferedImage result;
+        try {
+            for (int i = 0; i < 5; i++) {
+                BrightnessLut.apply(image, 40, null);
+            }
+            long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            result = BrightnessLut.apply(image, 40, null);
+            allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        } finally {
+            SimdSupport.setEnabled(simd);
+        }
+
+        assertNotNull(result);
+        assertTrue(allocated - outputBytes <= OVERHEAD_BYTES,
+                "allocated " + allocated + " bytes for a " + outputBytes + " byte output");
+    }
+}
@@ -0,0 +1,40 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the class data sharing training run.
+ */
+class CdsTrainingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Training runs every pipeline and menu operation through the JPEG codec")
+    void testTrain() throws IOException {
+        CdsTraining.train(dir);
+
+        for (int i = 0; i < CdsTraining.OPERATIONS.size(); i++) {
+            assertNotNull(ImageIO.read(dir.resolve("pipeline-" + i + ".jpg").toFile()), CdsTraining.OPERATIONS.get(i));
+        }
+        for (Operation.Kind kind : Operation.Kind.values()) {
+            assertTrue(CdsTraining.OPERATIONS.stream().anyMatch(op -> new Pipeline(List.of(op))
+                    .operations().get(0).kind == kind), kind.toString());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(8, files.filter(file -> file.getFileName().toString().startsWith("menu-")).count());
+        }
+    }
+}
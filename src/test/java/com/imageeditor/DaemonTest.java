@@ -0,0 +1,144 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the daemon mode and its client.
+ */
+class DaemonTest {
+
+    @TempDir
+    Path dir;
+
+    private Path socket;
+    private Daemon daemon;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    void start() throws IOException {
+        socket = dir.resolve("editor.sock");
+        daemon = new Daemon(socket);
+        daemon.start();
+    }
+
+    @AfterEach
+    void stop() {
+        daemon.stop();
+    }
+
+    @Test
+    @DisplayName("A command runs in the daemon with paths relative to the client's directory")
+    void testCommand() throws IOException {
+        BufferedImage image = RasterKernelsTest.randomImage(30, 20, BufferedImage.TYPE_3BYTE_BGR, 4);
+        ImageIO.write(image, "png", dir.resolve("in.png").toFile());
+
+        int status = run("--in", "in.png", "--op", "rotate-right", "--op", "blur:3", "--out", "out.png");
+
+        assertEquals(0, status, err.toString(StandardCharsets.UTF_8));
+        BufferedImage expected = new Pipeline(List.of("rotate-right", "blur:3")).apply(image, null);
+        RasterKernelsTest.assertSamePixels(expected, ImageIO.read(dir.resolve("out.png").toFile()));
+        assertEquals("Output saved to: " + dir.resolve("out.png") + System.lineSeparator(),
+                out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        assertEquals(0, run("--in", "in.png", "--op", "invert", "--out", "second.png"));
+        assertTrue(Files.exists(dir.resolve("second.png")));
+    }
+
+    @Test
+    @DisplayName("Errors and their status reach the client, and modes that never end are refused")
+    void testErrors() throws IOException {
+        assertEquals(1, run("--in", "missing.png"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Error: File not found - "));
+
+        for (String[] args : new String[][] {{}, {"--threads", "4"}, {"--jobs", "2"}, {"--memory", "64"},
+            {"--serve", "0"}, {"--daemon", "other.sock"}}) {
+            String command = String.join(" ", args);
+            err.reset();
+            assertEquals(1, run(args), command);
+            assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Error: The daemon runs"), command);
+        }
+        assertFalse(Files.exists(dir.resolve("other.sock")));
+
+        assertThrows(IOException.class, () -> new Daemon(socket));
+        daemon.stop();
+        assertFalse(Files.exists(socket));
+        assertThrows(IOException.class, () -> run("--help"));
+    }
+
+    @Test
+    @DisplayName("The socket is private from the moment it appears, and argument counts are checked")
+    void testRequests() throws IOException {
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(socket), files.toList());
+        }
+
+        for (int count : new int[] {-1, Daemon.MAX_ARGUMENTS + 1}) {
+            try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+                DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+                request.writeUTF(dir.toString());
+                request.writeInt(count);
+                request.flush();
+                DataInputStream reply = new DataInputStream(Channels.newInputStream(channel));
+                assertEquals(Daemon.STDERR, reply.readByte());
+                byte[] message = new byte[reply.readInt()];
+                reply.readFully(message);
+                assertTrue(new String(message, StandardCharsets.UTF_8).startsWith("Error: A command takes"));
+                assertEquals(Daemon.EXIT, reply.readByte());
+                assertEquals(1, reply.readInt());
+            }
+        }
+        assertEquals(0, run("--help"));
+    }
+
+    @Test
+    @DisplayName("Only a stale socket is replaced; a file in the socket's place is left alone")
+    void testSocketPath() throws IOException {
+        Path photo = dir.resolve("photo.jpg");
+        Files.write(photo, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> new Daemon(photo));
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(photo));
+
+        Path directory = Files.createDirectory(dir.resolve("sub"));
+        assertThrows(IOException.class, () -> new Daemon(directory));
+        assertTrue(Files.isDirectory(directory));
+
+        Path stale = dir.resolve("stale.sock");
+        try (ServerSocketChannel dead = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            dead.bind(UnixDomainSocketAddress.of(stale));
+        }
+        assertTrue(Files.exists(stale));
+        new Daemon(stale).stop();
+        assertFalse(Files.exists(stale));
+    }
+
+    private int run(String... args) throws IOException {
+        return DaemonClient.run(socket, args, dir.toString(), out, err);
+    }
+}
@@ -0,0 +1,81 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the decoded image cache.
+ */
+class DecodedCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Pipelines on a cached upload match fresh runs and leave the cached pixels untouched")
+    void testSharedInput() throws IOException {
+        BufferedImage image = RasterKernelsTest.randomImage(23, 14, BufferedImage.TYPE_3BYTE_BGR, 8);
+        byte[] png = encode(image);
+        DecodedCache cache = new DecodedCache(1 << 20);
+
+        for (List<String> specs : List.<List<String>>of(List.of("flip-horizontal"), List.of(), List.of("flip-vertical"),
+                List.of("crop:2,3,10,5", "flip-horizontal"), List.of("rotate-right", "invert"), List.of("blur:4"))) {
+            Pipeline pipeline = new Pipeline(specs);
+            Pipeline.Decoded decoded = cache.decode(png, "upload", pipeline, false);
+            BufferedImage result = pipeline.apply(decoded, null);
+
+            assertTrue(decoded.shared);
+            assertNotSame(decoded.image, result, specs.toString());
+            BufferedImage fresh = new Pipeline(specs).apply(ImageIO.read(new ByteArrayInputStream(png)), null);
+            RasterKernelsTest.assertSamePixels(fresh, result);
+            RasterKernelsTest.assertSamePixels(image, decoded.image);
+        }
+        assertEquals(5, cache.stats().hits);
+        assertEquals(1, cache.stats().misses);
+        assertEquals(23 * 14 * 3, cache.stats().weight);
+    }
+
+    @Test
+    @DisplayName("Keys separate decoder variants, and files are identified by path, size and modification time")
+    void testKeys() throws IOException {
+        byte[] png = encode(RasterKernelsTest.randomImage(32, 32, BufferedImage.TYPE_INT_RGB, 2));
+        Path file = Files.write(dir.resolve("in.png"), png);
+        DecodedCache cache = new DecodedCache(1 << 20);
+
+        cache.decode(png, "upload", new Pipeline(List.of("blur:8")), false);
+        cache.decode(png, "upload", new Pipeline(List.of("invert")), false);
+        Pipeline.Decoded draft = cache.decode(png, "upload", new Pipeline(List.of("blur:8")), true);
+        cache.decode(png, "upload", new Pipeline(List.of("auto-orient")), false);
+        assertEquals(1, cache.stats().hits);
+        assertEquals(4, draft.factor);
+        assertEquals(8, draft.image.getWidth());
+
+        cache.decode(file.toFile(), new Pipeline(List.of("invert")), false);
+        cache.decode(file.toFile(), new Pipeline(List.of("grayscale")), false);
+        assertEquals(2, cache.stats().hits);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        cache.decode(file.toFile(), new Pipeline(List.of("grayscale")), false);
+        assertEquals(2, cache.stats().hits);
+        assertThrows(IOException.class,
+                () -> cache.decode(new byte[] {1, 2}, "upload", new Pipeline(List.of()), false));
+    }
+
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
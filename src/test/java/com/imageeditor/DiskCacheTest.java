@@ -0,0 +1,121 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the on-disk result cache tier.
+ */
+class DiskCacheTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Entries are mapped from content-addressed files and survive a restart")
+    void testPersistence() throws IOException {
+        String key = key(1);
+        byte[] bytes = filled(1000, 7);
+        Path shard = Files.createDirectories(dir.resolve(key(2).substring(0, 2)));
+        Files.write(shard.resolve(key(2) + "123.tmp"), new byte[10]);
+        List<Path> foreign = List.of(dir.resolve("notes.tmp"), dir.resolve(key(2) + "123.tmp"),
+                shard.resolve("upload.tmp"), Files.createDirectories(dir.resolve("xy")).resolve(key(2) + "1.tmp"));
+        for (Path file : foreign) {
+            Files.write(file, new byte[10]);
+        }
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20)) {
+            assertNull(cache.get(key));
+            cache.put(key, bytes);
+            ByteBuffer hit = cache.get(key);
+            assertTrue(hit.isDirect());
+            assertEquals(ByteBuffer.wrap(bytes), hit);
+            assertEquals(1, cache.stats().hits);
+            assertEquals(1, cache.stats().misses);
+        }
+        assertTrue(Files.isRegularFile(dir.resolve(key.substring(0, 2)).resolve(key)));
+
+        try (DiskCache reopened = new DiskCache(dir, 1 << 20)) {
+            assertEquals(1, reopened.stats().entries);
+            assertEquals(1000, reopened.stats().weight);
+            assertEquals(ByteBuffer.wrap(bytes), reopened.get(key));
+        }
+        assertFalse(Files.exists(shard.resolve(key(2) + "123.tmp")));
+        for (Path file : foreign) {
+            assertTrue(Files.exists(file), file.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("The least recently used files are evicted in the background down to the low-water mark")
+    void testEviction() throws IOException, InterruptedException {
+        try (DiskCache cache = new DiskCache(dir, 1000)) {
+            for (int i = 0; i < 4; i++) {
+                cache.put(key(i), filled(250, i));
+                Thread.sleep(5);
+            }
+            assertNotNull(cache.get(key(0)));
+
+            cache.put(key(4), filled(250, 4));
+            cache.awaitEviction();
+
+            LruCache.Stats stats = cache.stats();
+            assertTrue(stats.weight <= 1000 * DiskCache.LOW_WATER, "weight " + stats.weight);
+            assertEquals(2, stats.evictions);
+            assertNotNull(cache.get(key(0)));
+            assertNull(cache.get(key(1)));
+            assertNull(cache.get(key(2)));
+            assertNotNull(cache.get(key(4)));
+            assertFalse(Files.exists(dir.resolve(key(1).substring(0, 2)).resolve(key(1))));
+
+            cache.put(key(5), new byte[1001]);
+            assertNull(cache.get(key(5)));
+        }
+        try (DiskCache full = new DiskCache(dir, 300)) {
+            full.awaitEviction();
+            assertTrue(full.stats().weight <= 300 * DiskCache.LOW_WATER);
+        }
+    }
+
+    @Test
+    @DisplayName("A result cache falls back from the heap to disk without copying hits onto the heap")
+    void testTiers() throws IOException {
+        try (DiskCache disk = new DiskCache(dir, 1 << 20)) {
+            ResultCache cache = new ResultCache(0, disk);
+            cache.put(key(9), filled(500, 9));
+
+            ByteBuffer hit = cache.get(key(9));
+
+            assertTrue(hit.isDirect());
+            assertEquals(ByteBuffer.wrap(filled(500, 9)), hit);
+            assertNull(cache.stats());
+            assertEquals(1, cache.diskStats().hits);
+            StringBuilder metrics = new StringBuilder();
+            cache.writeMetrics(metrics);
+            assertTrue(metrics.indexOf("\nimageeditor_result_cache_disk_hits_total 1\n") >= 0, metrics.toString());
+            assertTrue(metrics.indexOf("\nimageeditor_result_cache_bytes_saved_total 500\n") >= 0,
+                    metrics.toString());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(0, null));
+    }
+
+    private static String key(int seed) {
+        return ResultCache.key(new byte[] {(byte) seed}, new Pipeline(List.of()), "png", false);
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
@@ -0,0 +1,95 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the in-place flip variants.
+ */
+class FlipKernelTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("In-place flips mirror the pixels and keep the image type")
+    void testInPlaceMatchesMirror(int type) {
+        BufferedImage original = RasterKernelsTest.randomImage(WIDTH, HEIGHT, type, type);
+        int[] before = pixels(original);
+
+        BufferedImage horizontal = ImageEditor.flipHorizontalInPlace(RasterKernelsTest.copy(original));
+        BufferedImage vertical = ImageEditor.flipVerticalInPlace(RasterKernelsTest.copy(original));
+
+        assertEquals(type, horizontal.getType());
+        assertEquals(type, vertical.getType());
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(before[y * WIDTH + WIDTH - 1 - x], horizontal.getRGB(x, y));
+                assertEquals(before[(HEIGHT - 1 - y) * WIDTH + x], vertical.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("In-place flip returns the same instance")
+    void testInPlaceReturnsSameInstance() {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR, 1);
+
+        assertSame(image, ImageEditor.flipHorizontalInPlace(image));
+        assertSame(image, ImageEditor.flipVerticalInPlace(image));
+    }
+
+    @Test
+    @DisplayName("In-place flip of a sub-image leaves the rest of the parent untouched")
+    void testInPlaceSubimage() {
+        BufferedImage parent = RasterKernelsTest.randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR, 2);
+        int[] before = pixels(parent);
+        BufferedImage sub = parent.getSubimage(4, 3, 10, 8);
+
+        ImageEditor.flipVerticalInPlace(ImageEditor.flipHorizontalInPlace(sub));
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean inside = x >= 4 && x < 14 && y >= 3 && y < 11;
+                int expected = inside
+                        ? before[(3 + 8 - 1 - (y - 3)) * WIDTH + 4 + 10 - 1 - (x - 4)]
+                        : before[y * WIDTH + x];
+                assertEquals(expected, parent.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_USHORT_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Flip operations copy to TYPE_3BYTE_BGR for types the JPEG encoder rejects")
+    void testFlipCopiesUnencodableTypes(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+
+        assertFalse(ImageEditor.canFlipInPlace(image));
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, Operation.parse("flip-horizontal").apply(image, null).getType());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, Operation.parse("flip-vertical").apply(image, null).getType());
+    }
+}
@@ -0,0 +1,186 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for D4 composition, the single-pass remap and EXIF orientation.
+ */
+class GeometricChainTest {
+
+    private static final String[] GEOMETRIC_SPECS = {
+        "rotate-right", "rotate-left", "rotate-180", "flip-horizontal", "flip-vertical"
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Composition matches mapping coordinates through both transforms")
+    void testComposition() {
+        int width = 5;
+        int height = 3;
+        for (Orientation first : Orientation.values()) {
+            int midWidth = first.transposed ? height : width;
+            int midHeight = first.transposed ? width : height;
+            for (Orientation second : Orientation.values()) {
+                Orientation composed = first.then(second);
+                int outWidth = second.transposed ? midHeight : midWidth;
+                int outHeight = second.transposed ? midWidth : midHeight;
+                for (int y = 0; y < outHeight; y++) {
+                    for (int x = 0; x < outWidth; x++) {
+                        int mx = second.sourceX(x, y, midWidth);
+                        int my = second.sourceY(x, y, midHeight);
+                        assertEquals(first.sourceX(mx, my, width), composed.sourceX(x, y, width));
+                        assertEquals(first.sourceY(mx, my, height), composed.sourceY(x, y, height));
+                    }
+                }
+            }
+            assertEquals(Orientation.IDENTITY, first.then(first.inverse()));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Every chain of up to three rotations and flips matches the separate operations")
+    void testChainsMatchSeparateOperations(int type) {
+        BufferedImage image = RasterKernelsTest.randomImage(71, 38, type, type);
+        List<List<String>> chains = new ArrayList<>();
+        for (String a : GEOMETRIC_SPECS) {
+            chains.add(List.of(a));
+            for (String b : GEOMETRIC_SPECS) {
+                chains.add(List.of(a, b));
+                for (String c : GEOMETRIC_SPECS) {
+                    chains.add(List.of(a, b, c));
+                }
+            }
+        }
+        for (List<String> chain : chains) {
+            BufferedImage expected = image;
+            for (String spec : chain) {
+                expected = Operation.parse(spec).apply(RasterKernelsTest.copy(expected), null);
+            }
+            Pipeline pipeline = new Pipeline(chain);
+            BufferedImage actual = pipeline.apply(RasterKernelsTest.copy(image), null);
+
+            assertEquals(1, pipeline.stages().size());
+            assertEquals(type, actual.getType(), chain.toString());
+            RasterKernelsTest.assertSameRgb(expected, actual, chain.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Chains that compose to the identity return the input untouched")
+    void testIdentityIsNoOp() {
+        BufferedImage image = RasterKernelsTest.randomImage(9, 4, BufferedImage.TYPE_INT_RGB, 1);
+        int[] before = image.getRaster().getPixels(0, 0, 9, 4, (int[]) null);
+
+        BufferedImage result = new Pipeline(List.of("rotate-left", "flip-horizontal", "rotate-right", "flip-vertical"))
+                .apply(image, null);
+
+        assertSame(image, result);
+        assertArrayEquals(before, result.getRaster().getPixels(0, 0, 9, 4, (int[]) null));
+    }
+
+    @Test
+    @DisplayName("Sub-images are remapped from their own origin")
+    void testSubImage() {
+        BufferedImage parent = RasterKernelsTest.randomImage(40, 30, BufferedImage.TYPE_3BYTE_BGR, 2);
+        BufferedImage child = parent.getSubimage(7, 5, 20, 16);
+
+        BufferedImage result = GeometricChain.remap(child, Orientation.TRANSVERSE, null);
+
+        RasterKernelsTest.assertSameRgb(ImageEditor.rotateRight(ImageEditor.flipHorizontal(child)), result, "transverse");
+    }
+
+    @Test
+    @DisplayName("The orientation tag is read in both byte orders")
+    void testOrientationTag() {
+        assertEquals(6, ExifReader.orientationTag(exif(6, false)));
+        assertEquals(8, ExifReader.orientationTag(exif(8, true)));
+        assertEquals(1, ExifReader.orientationTag(new byte[] {'E', 'x', 'i', 'f', 0, 0, 'M', 'M'}));
+        assertEquals(Orientation.ROTATE_RIGHT, Orientation.fromExif(6));
+        assertEquals(Orientation.IDENTITY, Orientation.fromExif(0));
+    }
+
+    @Test
+    @DisplayName("auto-orient applies the EXIF orientation of the decoded JPEG")
+    void testAutoOrient() throws IOException {
+        BufferedImage image = RasterKernelsTest.randomImage(24, 16, BufferedImage.TYPE_3BYTE_BGR, 3);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        File input = dir.resolve("in.jpg").toFile();
+        Files.write(input.toPath(), withApp1(jpeg.toByteArray(), exif(8, true)));
+        File plain = dir.resolve("plain.png").toFile();
+        File oriented = dir.resolve("oriented.png").toFile();
+
+        new Pipeline(List.of("flip-vertical")).run(input, plain, null);
+        new Pipeline(List.of("auto-orient", "flip-vertical")).run(input, oriented, null);
+
+        BufferedImage decoded = ImageIO.read(input);
+        RasterKernelsTest.assertSamePixels(ImageEditor.flipVertical(decoded), ImageIO.read(plain));
+        RasterKernelsTest.assertSamePixels(ImageEditor.flipVertical(ImageEditor.rotateLeft(decoded)),
+                ImageIO.read(oriented));
+    }
+
+    /** Builds an APP1 payload holding IFD0 with a single orientation entry. */
+    private static byte[] exif(int orientation, boolean littleEndian) {
+        byte[] data = {
+            'E', 'x', 'i', 'f', 0, 0,
+            'M', 'M', 0, 42, 0, 0, 0, 8,
+            0, 1,
+            0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+            0, 0, 0, 0
+        };
+        if (littleEndian) {
+            data[6] = 'I';
+            data[7] = 'I';
+            for (int i : new int[] {8, 14, 16, 18, 24}) {
+                byte tmp = data[i];
+                data[i] = data[i + 1];
+                data[i + 1] = tmp;
+            }
+            // The 32-bit IFD offset and entry count are reversed as a whole.
+            data[10] = 8;
+            data[13] = 0;
+            data[20] = 1;
+            data[23] = 0;
+        }
+        return data;
+    }
+
+    /** Inserts an APP1 segment after the APP0 (JFIF) segment that ImageIO writes first. */
+    private static byte[] withApp1(byte[] jpeg, byte[] payload) {
+        int app0End = 4 + ((jpeg[4] & 0xFF) << 8 | (jpeg[5] & 0xFF));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(jpeg, 0, app0End);
+        out.write(0xFF);
+        out.write(0xE1);
+        out.write((payload.length + 2) >> 8);
+        out.write(payload.length + 2);
+        out.write(payload, 0, payload.length);
+        out.write(jpeg, app0End, jpeg.length - app0End);
+        return out.toByteArray();
+    }
+}
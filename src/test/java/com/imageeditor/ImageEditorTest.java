@@ -126,6 +126,21 @@ class ImageEditorTest {
         assertEquals(TEST_HEIGHT, result.getHeight());
     }
 
+    @Test
+    @DisplayName("Rotate 180 equals two right rotations")
+    void testRotate180() {
+        BufferedImage expected = ImageEditor.rotateRight(ImageEditor.rotateRight(testImage));
+        BufferedImage result = ImageEditor.rotate180(testImage);
+
+        assertEquals(TEST_WIDTH, result.getWidth());
+        assertEquals(TEST_HEIGHT, result.getHeight());
+        for (int y = 0; y < TEST_HEIGHT; y++) {
+            for (int x = 0; x < TEST_WIDTH; x++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+    }
+
     @Test
     @DisplayName("Horizontal flip preserves dimensions")
     void testFlipHorizontalDimensions() {
@@ -0,0 +1,156 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for header-only image probing.
+ */
+class ImageProbeTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Size and colour type are read from the header of a file or a stream")
+    void testProbe() throws IOException {
+        byte[] png = png(RasterKernelsTest.randomImage(37, 21, BufferedImage.TYPE_3BYTE_BGR, 5));
+        Path file = Files.write(dir.resolve("in.png"), png);
+
+        for (ImageProbe probe : List.of(ImageProbe.of(file.toFile()),
+                ImageProbe.of(new MemoryCacheImageInputStream(new ByteArrayInputStream(png)), "upload"))) {
+            assertEquals("png", probe.format);
+            assertEquals(37, probe.width);
+            assertEquals(21, probe.height);
+            assertEquals("3BYTE_BGR", probe.type);
+            assertEquals(3, probe.bands);
+            assertEquals(8, probe.bitsPerBand);
+            assertFalse(probe.alpha);
+            assertEquals(37 * 21 * 3, probe.decodedBytes);
+        }
+        ImageProbe argb = ImageProbe.of(Files.write(dir.resolve("argb.png"),
+                png(RasterKernelsTest.randomImage(10, 10, BufferedImage.TYPE_INT_ARGB, 6))).toFile());
+        assertTrue(argb.alpha);
+        assertEquals(4, argb.bands);
+        Path text = Files.writeString(dir.resolve("notes.png"), "not an image");
+        assertThrows(IOException.class, () -> ImageProbe.of(text.toFile()));
+    }
+
+    @Test
+    @DisplayName("Memory follows the decoded layout and costs scale with the pixels each step touches")
+    void testCosts() throws IOException {
+        Path file = Files.write(dir.resolve("in.png"),
+                png(RasterKernelsTest.randomImage(100, 50, BufferedImage.TYPE_3BYTE_BGR, 7)));
+        ImageProbe probe = ImageProbe.of(file.toFile());
+        Pipeline blur = new Pipeline(List.of("blur:4"));
+
+        assertEquals(AdmissionController.estimate(blur, 100, 50, 3, false), probe.memory(blur, false));
+        assertTrue(probe.memory(blur, false) < AdmissionController.estimate(blur, 100, 50, false));
+
+        double[] costs = probe.costs(new Pipeline(List.of("crop:0,0,10,10", "blur:4")), "png", false);
+        assertEquals(4, costs.length);
+        double[] full = probe.costs(blur, "png", false);
+        assertEquals(full[0], costs[0]);
+        assertEquals(full[1] / 50, costs[2], 1e-9);
+        assertEquals(full[2] / 50, costs[3], 1e-9);
+        assertTrue(probe.costs(blur, "jpeg", false)[2] < full[2]);
+        assertTrue(probe.costs(new Pipeline(List.of("blur:8")), "png", true)[0] < full[0]);
+    }
+
+    @Test
+    @DisplayName("The JSON costs the given pipeline, or each editor operation when there is none")
+    void testJson() throws IOException {
+        Path file = Files.write(dir.resolve("in.png"),
+                png(RasterKernelsTest.randomImage(40, 30, BufferedImage.TYPE_INT_RGB, 8)));
+        ImageProbe probe = ImageProbe.of(file.toFile());
+
+        String costed = probe.toJson("in.png", new Pipeline(List.of("rotate-right", "blur:4")), "jpg", false);
+        assertTrue(costed.startsWith("{\"input\":\"in.png\",\"format\":\"png\",\"width\":40,\"height\":30,"), costed);
+        assertTrue(costed.contains(",\"memoryBytes\":"), costed);
+        assertTrue(costed.contains("{\"op\":\"rotate-right\",\"ms\":"), costed);
+        assertTrue(costed.contains("\"totalMs\":"), costed);
+        String menu = probe.toJson(null, new Pipeline(List.of()), null, false);
+        assertFalse(menu.contains("\"input\""), menu);
+        for (String operation : ImageProbe.EDITOR_OPERATIONS) {
+            String name = new Pipeline(List.of(operation)).operations().get(0).toString();
+            assertTrue(menu.contains("{\"op\":" + Json.quote(name) + ",\"ms\":"), menu);
+        }
+    }
+
+    @Test
+    @DisplayName("--probe prints the JSON for --in without writing an output")
+    void testCommandLine() throws IOException {
+        Path input = Files.write(dir.resolve("in.png"),
+                png(RasterKernelsTest.randomImage(12, 9, BufferedImage.TYPE_INT_RGB, 9)));
+        Path output = dir.resolve("out.jpg");
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        int status;
+        try {
+            status = ImageEditor.run(new String[] {
+                "--in", input.toString(), "--op", "blur:3", "--out", output.toString(), "--probe"
+            });
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(0, status);
+        assertFalse(Files.exists(output));
+        String json = printed.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"format\":\"png\",\"width\":12,\"height\":9,"), json);
+        assertEquals(1, ImageEditor.run(new String[] {"--probe"}));
+        assertEquals(1, ImageEditor.run(new String[] {"--in", input.toString(), "--stream", "--probe"}));
+    }
+
+    @Test
+    @DisplayName("A header claiming a size no raster can hold is rejected without allocating it")
+    void testHugeHeader() throws IOException {
+        byte[] png = png(RasterKernelsTest.randomImage(4, 4, BufferedImage.TYPE_3BYTE_BGR, 10));
+
+        ImageProbe large = probe(resize(png, 20_000, 20_000));
+        assertEquals(20_000L * 20_000 * 3, large.decodedBytes);
+        for (int[] size : new int[][] {{Integer.MAX_VALUE, 1}, {1, Integer.MAX_VALUE}, {100_000, 100_000}}) {
+            IOException e = assertThrows(IOException.class, () -> probe(resize(png, size[0], size[1])));
+            assertTrue(e.getMessage().startsWith("Cannot decode an image of"), e.getMessage());
+        }
+    }
+
+    private static ImageProbe probe(byte[] encoded) throws IOException {
+        return ImageProbe.of(new MemoryCacheImageInputStream(new ByteArrayInputStream(encoded)), "upload");
+    }
+
+    /** Rewrites the size in a PNG's IHDR chunk, leaving the pixel data as it was. */
+    private static byte[] resize(byte[] png, int width, int height) {
+        byte[] copy = png.clone();
+        ByteBuffer header = ByteBuffer.wrap(copy);
+        header.putInt(16, width).putInt(20, height);
+        CRC32 crc = new CRC32();
+        crc.update(copy, 12, 17);
+        header.putInt(29, (int) crc.getValue());
+        return copy;
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
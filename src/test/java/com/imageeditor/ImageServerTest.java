@@ -0,0 +1,160 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the HTTP server mode.
+ */
+class ImageServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ImageServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new ImageServer(new InetSocketAddress("127.0.0.1", 0), 2, false, null, null, null, null);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("A posted image comes back processed like a pipeline run")
+    void testProcess() throws IOException, InterruptedException {
+        BufferedImage image = RasterKernelsTest.randomImage(37, 21, BufferedImage.TYPE_3BYTE_BGR, 9);
+        byte[] png = encode(image, "png");
+        BufferedImage expected = new Pipeline(List.of("rotate-right", "invert", "blur:4")).apply(image, null);
+
+        HttpResponse<byte[]> response = post("/process?op=rotate-right&op=invert&op=blur%3A4", png);
+        assertEquals(200, response.statusCode());
+        assertEquals("image/png", response.headers().firstValue("Content-Type").orElse(""));
+        RasterKernelsTest.assertSamePixels(expected, ImageIO.read(new ByteArrayInputStream(response.body())));
+
+        HttpResponse<byte[]> bmp = post("/process?format=BMP&op=rotate-right&op=invert&op=blur:4", png);
+        assertEquals(200, bmp.statusCode());
+        RasterKernelsTest.assertSamePixels(expected, ImageIO.read(new ByteArrayInputStream(bmp.body())));
+    }
+
+    @Test
+    @DisplayName("A posted image is probed from its header and costed as JSON")
+    void testProbe() throws IOException, InterruptedException {
+        byte[] png = encode(RasterKernelsTest.randomImage(37, 21, BufferedImage.TYPE_3BYTE_BGR, 2), "png");
+
+        HttpResponse<byte[]> response = post("/probe?op=blur%3A4&format=jpeg", png);
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(""));
+        String json = new String(response.body());
+        assertTrue(json.startsWith("{\"format\":\"png\",\"width\":37,\"height\":21,\"type\":\"3BYTE_BGR\""), json);
+        assertTrue(json.contains("{\"op\":\"blur:4\",\"ms\":"), json);
+        assertEquals(400, post("/probe", "not an image".getBytes()).statusCode());
+        assertEquals(400, post("/probe?op=sharpen", png).statusCode());
+        assertEquals(405, send(HttpRequest.newBuilder(uri("/probe")).GET().build()).statusCode());
+    }
+
+    @Test
+    @DisplayName("Bad requests get a client error and the server keeps serving")
+    void testErrors() throws IOException, InterruptedException {
+        byte[] png = encode(RasterKernelsTest.randomImage(8, 8, BufferedImage.TYPE_INT_RGB, 1), "png");
+
+        assertEquals(400, post("/process?op=sharpen", png).statusCode());
+        assertEquals(400, post("/process?format=webp", png).statusCode());
+        assertEquals(400, post("/process?size=2", png).statusCode());
+        assertEquals(400, post("/process", "not an image".getBytes()).statusCode());
+        HttpResponse<byte[]> get = send(HttpRequest.newBuilder(uri("/process")).GET().build());
+        assertEquals(405, get.statusCode());
+        assertEquals("POST", get.headers().firstValue("Allow").orElse(""));
+
+        HttpResponse<byte[]> health = send(HttpRequest.newBuilder(uri("/health")).GET().build());
+        assertEquals(200, health.statusCode());
+        assertEquals("ok\n", new String(health.body()));
+        assertEquals(200, post("/process?op=grayscale", png).statusCode());
+    }
+
+    @Test
+    @DisplayName("With a result cache a repeated request is a hit with the same bytes, and metrics count it")
+    void testCache() throws IOException, InterruptedException {
+        server.stop(0);
+        server = new ImageServer(new InetSocketAddress("127.0.0.1", 0), 2, false, null, new ResultCache(1 << 20), null,
+                null);
+        server.start();
+        byte[] png = encode(RasterKernelsTest.randomImage(25, 17, BufferedImage.TYPE_INT_RGB, 3), "png");
+
+        HttpResponse<byte[]> first = post("/process?op=grayscale&op=blur:3", png);
+        HttpResponse<byte[]> second = post("/process?op=GRAYSCALE&op=blur:03&format=png", png);
+        HttpResponse<byte[]> other = post("/process?op=grayscale", png);
+
+        assertEquals("MISS", first.headers().firstValue("X-Cache").orElse(""));
+        assertEquals("HIT", second.headers().firstValue("X-Cache").orElse(""));
+        assertEquals("image/png", second.headers().firstValue("Content-Type").orElse(""));
+        assertEquals("MISS", other.headers().firstValue("X-Cache").orElse(""));
+        assertArrayEquals(first.body(), second.body());
+        String metrics = new String(send(HttpRequest.newBuilder(uri("/metrics")).GET().build()).body());
+        assertTrue(metrics.contains("\nimageeditor_result_cache_hits_total 1\n"), metrics);
+        assertTrue(metrics.contains("\nimageeditor_result_cache_misses_total 2\n"), metrics);
+        assertTrue(metrics.contains("\nimageeditor_coalesced_requests_total 0\n"), metrics);
+        assertTrue(metrics.contains("\nimageeditor_result_cache_bytes_saved_total " + second.body().length + "\n"),
+                metrics);
+        assertEquals(400, post("/process", "not an image".getBytes()).statusCode());
+    }
+
+    @Test
+    @DisplayName("Uploads that can never fit the memory budget are refused, and ones that wait too long retry")
+    void testAdmission() throws IOException, InterruptedException {
+        server.stop(0);
+        AdmissionController admission = new AdmissionController(64 << 10, Duration.ofMillis(50));
+        server = new ImageServer(new InetSocketAddress("127.0.0.1", 0), 2, false, null, null, null, admission);
+        server.start();
+        byte[] small = encode(RasterKernelsTest.randomImage(16, 16, BufferedImage.TYPE_INT_RGB, 4), "png");
+        byte[] large = encode(RasterKernelsTest.randomImage(200, 200, BufferedImage.TYPE_INT_RGB, 5), "png");
+
+        assertEquals(200, post("/process?op=invert", small).statusCode());
+        assertEquals(413, post("/process?op=invert", large).statusCode());
+        try (AdmissionController.Permit held = admission.acquire(64 << 10)) {
+            HttpResponse<byte[]> busy = post("/process?op=invert", small);
+            assertEquals(503, busy.statusCode());
+            assertEquals("1", busy.headers().firstValue("Retry-After").orElse(""));
+        }
+        assertEquals(200, post("/process?op=invert", small).statusCode());
+        String metrics = new String(send(HttpRequest.newBuilder(uri("/metrics")).GET().build()).body());
+        assertTrue(metrics.contains("\nimageeditor_admission_rejected_total 2\n"), metrics);
+    }
+
+    private HttpResponse<byte[]> post(String path, byte[] body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofByteArray(body)).build());
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.port() + path);
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
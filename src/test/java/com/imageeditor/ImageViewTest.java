@@ -0,0 +1,123 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that lazy views read and materialize exactly what eager copies would produce.
+ */
+class ImageViewTest {
+
+    private static final String[] GEOMETRIC_SPECS = {
+        "rotate-right", "rotate-left", "rotate-180", "flip-horizontal", "flip-vertical"
+    };
+
+    private static BufferedImage eager(BufferedImage image, List<String> specs) {
+        BufferedImage current = RasterKernelsTest.copy(image);
+        for (String spec : specs) {
+            current = Operation.parse(spec).apply(current, null);
+        }
+        return current;
+    }
+
+    /** Picks random rotations, flips and crops that always fit the image they are applied to. */
+    private static List<String> randomChain(Random random, int width, int height) {
+        List<String> specs = new ArrayList<>();
+        for (int i = 0, length = 1 + random.nextInt(5); i < length; i++) {
+            if (random.nextInt(3) == 0) {
+                int w = 1 + random.nextInt(width);
+                int h = 1 + random.nextInt(height);
+                specs.add("crop:" + random.nextInt(width - w + 1) + "," + random.nextInt(height - h + 1) + ","
+                        + w + "," + h);
+                width = w;
+                height = h;
+            } else {
+                Operation operation = Operation.parse(GEOMETRIC_SPECS[random.nextInt(GEOMETRIC_SPECS.length)]);
+                specs.add(operation.toString());
+                if (operation.orientation().transposed) {
+                    int swap = width;
+                    width = height;
+                    height = swap;
+                }
+            }
+        }
+        return specs;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Reading through a view and materializing it both match eager operations")
+    void testViewsMatchEagerOperations(int type) {
+        BufferedImage image = RasterKernelsTest.randomImage(29, 17, type, type);
+        Random random = new Random(type);
+        for (int n = 0; n < 200; n++) {
+            List<String> specs = randomChain(random, 29, 17);
+            BufferedImage expected = eager(image, specs);
+            ImageView view = new GeometricChain(parse(specs), Orientation.IDENTITY).apply(ImageView.of(image), null);
+
+            assertSame(image, view.source(), "views never copy");
+            PixelReader reader = view.reader();
+            int[] row = new int[view.width()];
+            for (int y = 0; y < view.height(); y++) {
+                reader.readRow(y, row);
+                for (int x = 0; x < view.width(); x++) {
+                    assertEquals(expected.getRGB(x, y) & 0xFFFFFF, row[x] & 0xFFFFFF, specs + " at " + x + "," + y);
+                }
+            }
+            BufferedImage materialized = view.materialize(null);
+            assertEquals(type, materialized.getType());
+            RasterKernelsTest.assertSameRgb(expected, materialized, specs.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Kernels after a rotation or crop read through the view")
+    void testKernelsReadThroughViews() {
+        BufferedImage image = RasterKernelsTest.randomImage(45, 31, BufferedImage.TYPE_3BYTE_BGR, 6);
+        List<List<String>> pipelines = List.of(
+                List.of("rotate-right", "blur:4"),
+                List.of("flip-horizontal", "grayscale"),
+                List.of("crop:3,5,20,11", "rotate-left", "brightness:30"),
+                List.of("rotate-180", "invert", "gamma:1.5"),
+                List.of("crop:0,0,45,31", "contrast:20"));
+        for (List<String> specs : pipelines) {
+            BufferedImage lazy = new Pipeline(specs).apply(RasterKernelsTest.copy(image), null);
+            RasterKernelsTest.assertSamePixels(eager(image, specs), lazy);
+        }
+    }
+
+    @Test
+    @DisplayName("Crops outside the view are rejected")
+    void testCropOutside() {
+        ImageView view = ImageView.of(new BufferedImage(10, 6, BufferedImage.TYPE_INT_RGB))
+                .orient(Orientation.ROTATE_RIGHT);
+
+        assertEquals(6, view.width());
+        assertEquals(10, view.height());
+        assertThrows(IllegalArgumentException.class, () -> view.crop(0, 0, 10, 6));
+        assertThrows(IllegalArgumentException.class, () -> view.crop(1, 5, 6, 6));
+        assertEquals(4, view.crop(2, 3, 4, 7).width());
+    }
+
+    private static List<Operation> parse(List<String> specs) {
+        List<Operation> operations = new ArrayList<>();
+        for (String spec : specs) {
+            operations.add(Operation.parse(spec));
+        }
+        return operations;
+    }
+}
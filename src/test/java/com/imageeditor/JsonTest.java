@@ -0,0 +1,68 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the minimal JSON reader and writer.
+ */
+class JsonTest {
+
+    @Test
+    @DisplayName("Objects parse into maps, lists, strings, numbers, booleans and nulls")
+    void testParse() {
+        Map<String, Object> object = Json.parseObject(
+                " {\"a\": \"x\\\"y\\\\z\\u00e9\\n\", \"b\": [1, -2.5e1, true, false, null], \"c\": {}, \"d\": []} ");
+
+        assertEquals(List.of("a", "b", "c", "d"), List.copyOf(object.keySet()));
+        assertEquals("x\"y\\z\u00e9\n", object.get("a"));
+        assertEquals(Arrays.asList(1.0, -25.0, true, false, null), object.get("b"));
+        assertEquals(Map.of(), object.get("c"));
+        assertEquals(List.of(), object.get("d"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "", "[]", "{", "{\"a\"}", "{\"a\": 1,}", "{\"a\": 1} x", "{a: 1}", "{\"a\": tru}", "{\"a\": \"\\q\"}",
+        "{\"a\": \"\\u12\"}", "{\"a\": 1.2.3}", "{\"a\": \"open}", "{\"a\": 1e999}", "{\"a\": -1e999}"
+    })
+    @DisplayName("Malformed input is rejected")
+    void testInvalid(String text) {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject(text));
+    }
+
+    @Test
+    @DisplayName("Nesting is bounded instead of exhausting the stack")
+    void testDepth() {
+        String nested = "[".repeat(Json.MAX_DEPTH - 1) + "]".repeat(Json.MAX_DEPTH - 1);
+        assertNotNull(Json.parseObject("{\"a\": " + nested + "}"));
+
+        String deep = "{\"a\": " + "[".repeat(100_000) + "]".repeat(100_000) + "}";
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Json.parseObject(deep));
+        assertTrue(e.getMessage().startsWith("Nested deeper than"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Quoted strings and literals parse back to the same value")
+    void testRoundTrip() {
+        String value = "tab\t quote\" backslash\\ bell\u0007 line\n";
+
+        assertEquals(value, Json.parseObject("{\"v\": " + Json.quote(value) + "}").get("v"));
+        assertEquals("null", Json.quote(null));
+        assertEquals("42", Json.literal(42.0));
+        assertEquals("0.5", Json.literal(0.5));
+        assertEquals("true", Json.literal(true));
+        assertEquals("\"id\"", Json.literal("id"));
+        assertThrows(IllegalArgumentException.class, () -> Json.literal(Map.of("a", 1.0)));
+        assertThrows(IllegalArgumentException.class, () -> Json.literal(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> Json.literal(Double.NaN));
+    }
+}
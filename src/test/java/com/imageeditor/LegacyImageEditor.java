@@ -0,0 +1,203 @@
+package com.imageeditor;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/**
+ * The original per-pixel getRGB/setRGB implementations of the ImageEditor operations,
+ * kept as the reference the raster kernels are checked against.
+ */
+final class LegacyImageEditor {
+
+    private LegacyImageEditor() {
+    }
+
+    /**
+     * Converts an image to grayscale.
+     *
+     * @param inputImage the color image to convert
+     * @return grayscale version of the image
+     */
+    static BufferedImage convertToGrayscale(BufferedImage inputImage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                outputImage.setRGB(j, i, inputImage.getRGB(j, i));
+            }
+        }
+        return outputImage;
+    }
+
+    /**
+     * Adjusts the brightness of an image by a percentage.
+     *
+     * @param inputImage the image to adjust
+     * @param percentage brightness adjustment (-100 to darken, +100 to brighten)
+     * @return brightness-adjusted image
+     */
+    static BufferedImage adjustBrightness(BufferedImage inputImage, int percentage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                Color pixel = new Color(inputImage.getRGB(j, i));
+                int red = pixel.getRed();
+                int green = pixel.getGreen();
+                int blue = pixel.getBlue();
+
+                red += (red * percentage) / 100;
+                green += (green * percentage) / 100;
+                blue += (blue * percentage) / 100;
+
+                red = Math.min(255, Math.max(0, red));
+                green = Math.min(255, Math.max(0, green));
+                blue = Math.min(255, Math.max(0, blue));
+
+                Color newPixel = new Color(red, green, blue);
+                result.setRGB(j, i, newPixel.getRGB());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rotates an image 90 degrees clockwise.
+     *
+     * @param inputImage the image to rotate
+     * @return rotated image
+     */
+    static BufferedImage rotateRight(BufferedImage inputImage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                rotatedImage.setRGB(i, j, inputImage.getRGB(j, i));
+            }
+        }
+
+        int index = rotatedImage.getWidth() - 1;
+        for (int i = 0; i < rotatedImage.getHeight(); i++) {
+            for (int j = 0; j < rotatedImage.getWidth() / 2; j++) {
+                Color temp = new Color(rotatedImage.getRGB(j, i));
+                rotatedImage.setRGB(j, i, rotatedImage.getRGB(index - j, i));
+                rotatedImage.setRGB(index - j, i, temp.getRGB());
+            }
+        }
+        return rotatedImage;
+    }
+
+    /**
+     * Rotates an image 90 degrees counter-clockwise.
+     *
+     * @param inputImage the image to rotate
+     * @return rotated image
+     */
+    static BufferedImage rotateLeft(BufferedImage inputImage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage rotatedImage = new BufferedImage(height, width, BufferedImage.TYPE_INT_RGB);
+
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                rotatedImage.setRGB(i, j, inputImage.getRGB(j, i));
+            }
+        }
+
+        int index = rotatedImage.getHeight() - 1;
+        for (int j = 0; j < rotatedImage.getWidth(); j++) {
+            for (int i = 0; i < rotatedImage.getHeight() / 2; i++) {
+                Color temp = new Color(rotatedImage.getRGB(j, i));
+                rotatedImage.setRGB(j, i, rotatedImage.getRGB(j, index - i));
+                rotatedImage.setRGB(j, index - i, temp.getRGB());
+            }
+        }
+        return rotatedImage;
+    }
+
+    /**
+     * Flips an image horizontally (left-right mirror).
+     *
+     * @param inputImage the image to flip
+     * @return horizontally flipped image
+     */
+    static BufferedImage flipHorizontal(BufferedImage inputImage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                outputImage.setRGB(j, i, inputImage.getRGB(width - j - 1, i));
+            }
+        }
+        return outputImage;
+    }
+
+    /**
+     * Flips an image vertically (top-bottom mirror).
+     *
+     * @param inputImage the image to flip
+     * @return vertically flipped image
+     */
+    static BufferedImage flipVertical(BufferedImage inputImage) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+
+        for (int j = 0; j < width; j++) {
+            for (int i = 0; i < height; i++) {
+                outputImage.setRGB(j, i, inputImage.getRGB(j, height - i - 1));
+            }
+        }
+        return outputImage;
+    }
+
+    /**
+     * Applies a pixelated blur effect to an image.
+     *
+     * @param inputImage the image to blur
+     * @param blockSize the size of pixel blocks for averaging
+     * @return blurred image
+     */
+    static BufferedImage applyBlur(BufferedImage inputImage, int blockSize) {
+        int height = inputImage.getHeight();
+        int width = inputImage.getWidth();
+        BufferedImage outputImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+
+        for (int i = 0; i < height / blockSize; i++) {
+            for (int j = 0; j < width / blockSize; j++) {
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+
+                for (int k = i * blockSize; k < i * blockSize + blockSize; k++) {
+                    for (int l = j * blockSize; l < j * blockSize + blockSize; l++) {
+                        Color pixel = new Color(inputImage.getRGB(l, k));
+                        red += pixel.getRed();
+                        blue += pixel.getBlue();
+                        green += pixel.getGreen();
+                    }
+                }
+
+                int avgRed = red / (blockSize * blockSize);
+                int avgGreen = green / (blockSize * blockSize);
+                int avgBlue = blue / (blockSize * blockSize);
+
+                for (int k = i * blockSize; k < i * blockSize + blockSize; k++) {
+                    for (int l = j * blockSize; l < j * blockSize + blockSize; l++) {
+                        Color newPixel = new Color(avgRed, avgGreen, avgBlue);
+                        outputImage.setRGB(l, k, newPixel.getRGB());
+                    }
+                }
+            }
+        }
+        return outputImage;
+    }
+
+}
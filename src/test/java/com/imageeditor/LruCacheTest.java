@@ -0,0 +1,105 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the striped, weight-bounded LRU cache and the result cache built on it.
+ */
+class LruCacheTest {
+
+    @Test
+    @DisplayName("The least recently used entries are evicted until the weight fits")
+    void testEviction() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, 1, bytes -> bytes.length);
+        cache.put("a", new byte[40]);
+        cache.put("b", new byte[30]);
+        cache.put("c", new byte[20]);
+        assertNotNull(cache.get("a"));
+
+        cache.put("d", new byte[50]);
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        LruCache.Stats stats = cache.stats();
+        assertEquals(2, stats.evictions);
+        assertEquals(90, stats.weight);
+        assertEquals(2, stats.entries);
+        assertEquals(3, stats.hits);
+        assertEquals(2, stats.misses);
+        assertEquals(40 + 40 + 50, stats.hitWeight);
+        assertEquals(0.6, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Replacing a value reweighs it and oversized values are not cached")
+    void testReplaceAndOversize() {
+        LruCache<String, byte[]> cache = new LruCache<>(100, 2, bytes -> bytes.length);
+
+        assertTrue(cache.put("a", new byte[30]));
+        assertTrue(cache.put("a", new byte[10]));
+        assertFalse(cache.put("b", new byte[51]));
+
+        assertEquals(10, cache.stats().weight);
+        assertEquals(1, cache.stats().entries);
+        assertNull(cache.get("b"));
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, byte[]>(100, 3, b -> b.length));
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, byte[]>(0, 1, b -> b.length));
+    }
+
+    @Test
+    @DisplayName("Concurrent use keeps every stripe within its share of the capacity")
+    void testConcurrent() throws Exception {
+        long capacity = 64 * 1000;
+        LruCache<Integer, byte[]> cache = new LruCache<>(capacity, 8, bytes -> bytes.length);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        int key = (i * 31 + seed) % 500;
+                        if (cache.get(key) == null) {
+                            cache.put(key, new byte[100 + key % 900]);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        LruCache.Stats stats = cache.stats();
+        assertTrue(stats.weight <= capacity, "weight " + stats.weight);
+        assertEquals(20000, stats.hits + stats.misses);
+        assertTrue(stats.evictions > 0);
+    }
+
+    @Test
+    @DisplayName("Result keys depend on the input bytes, normalized operations, format and draft flag")
+    void testResultKey() {
+        byte[] input = {1, 2, 3};
+        String key = ResultCache.key(input, new Pipeline(List.of("blur:8", "gamma:2")), "png", false);
+
+        assertEquals(64, key.length());
+        assertEquals(key, ResultCache.key(input.clone(), new Pipeline(List.of("BLUR:08", "gamma:2.0")), "PNG", false));
+        assertNotEquals(key, ResultCache.key(new byte[] {1, 2, 4}, new Pipeline(List.of("blur:8", "gamma:2")),
+                "png", false));
+        assertNotEquals(key, ResultCache.key(input, new Pipeline(List.of("gamma:2", "blur:8")), "png", false));
+        assertNotEquals(key, ResultCache.key(input, new Pipeline(List.of("blur:8", "gamma:2")), "jpg", false));
+        assertNotEquals(key, ResultCache.key(input, new Pipeline(List.of("blur:8", "gamma:2")), "png", true));
+    }
+}
@@ -0,0 +1,244 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JSONL manifest runner.
+ */
+class ManifestRunnerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Each job runs its own chain and logs one result line with timings")
+    void testJobs() throws IOException, InterruptedException {
+        BufferedImage image = RasterKernelsTest.randomImage(24, 16, BufferedImage.TYPE_3BYTE_BGR, 4);
+        ImageIO.write(image, "png", dir.resolve("in.png").toFile());
+        String manifest = String.join("\n",
+                "{\"id\": 7, \"input\": \"in.png\", \"ops\": [\"rotate-right\", \"invert\"], \"output\": \"a/r.png\"}",
+                "",
+                "{\"input\": \"in.png\", \"output\": \"copy.bmp\"}",
+                "{\"input\": \"missing.png\", \"output\": \"x.png\"}",
+                "{\"input\": \"in.png\", \"ops\": [\"sharpen\"], \"output\": \"x.png\"}",
+                "not json",
+                "{\"id\": \"last\", \"input\": \"in.png\", \"ops\": \"grayscale\", \"output\": \"x.png\"}");
+        StringWriter log = new StringWriter();
+
+        int failures = new ManifestRunner(3, false, null, null, null, null).run(
+                new BufferedReader(new StringReader(manifest)), dir, log);
+
+        assertEquals(4, failures);
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String line : log.toString().split("\n")) {
+            results.add(Json.parseObject(line));
+        }
+        results.sort((a, b) -> Double.compare((Double) a.get("line"), (Double) b.get("line")));
+        assertEquals(List.of(1.0, 3.0, 4.0, 5.0, 6.0, 7.0), results.stream().map(r -> r.get("line")).toList());
+        assertEquals(List.of("ok", "ok", "error", "error", "error", "error"),
+                results.stream().map(r -> r.get("status")).toList());
+        assertEquals(7.0, results.get(0).get("id"));
+        assertEquals("last", results.get(5).get("id"));
+        for (String timing : List.of("decodeMs", "processMs", "encodeMs", "totalMs")) {
+            assertTrue((Double) results.get(0).get(timing) >= 0, timing);
+        }
+        assertTrue(results.get(3).get("error").toString().contains("sharpen"));
+
+        BufferedImage expected = ImageEditor.rotateRight(image);
+        BufferedImage written = ImageIO.read(dir.resolve("a/r.png").toFile());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(~expected.getRGB(x, y) & 0xFFFFFF, written.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+        RasterKernelsTest.assertSamePixels(image, ImageIO.read(dir.resolve("copy.bmp").toFile()));
+    }
+
+    @Test
+    @DisplayName("Unusable ids and deep nesting fail their job with a valid result line")
+    void testHostileLines() throws IOException, InterruptedException {
+        ImageIO.write(RasterKernelsTest.randomImage(8, 8, BufferedImage.TYPE_3BYTE_BGR, 1), "png",
+                dir.resolve("in.png").toFile());
+        String manifest = String.join("\n",
+                "{\"id\": {\"a\": 1}, \"input\": \"in.png\", \"output\": \"a.png\"}",
+                "{\"id\": [1], \"input\": \"in.png\", \"output\": \"b.png\"}",
+                "{\"id\": 1e999, \"input\": \"in.png\", \"output\": \"c.png\"}",
+                "{\"id\": " + "[".repeat(100_000) + "]".repeat(100_000) + "}",
+                "{\"id\": true, \"input\": \"in.png\", \"output\": \"d.png\"}");
+        StringWriter log = new StringWriter();
+
+        int failures = new ManifestRunner(2, false, null, null, null, null).run(
+                new BufferedReader(new StringReader(manifest)), dir, log);
+
+        assertEquals(4, failures);
+        String[] lines = log.toString().split("\n");
+        assertEquals(5, lines.length);
+        for (String line : lines) {
+            Map<String, Object> result = Json.parseObject(line);
+            assertEquals(result.get("line").equals(5.0) ? "ok" : "error", result.get("status"), line);
+        }
+        assertFalse(Files.exists(dir.resolve("a.png")));
+        assertTrue(Files.exists(dir.resolve("d.png")));
+    }
+
+    @Test
+    @DisplayName("An Error fails its job, stops later jobs and still leaves a result line for every line")
+    void testError() throws IOException {
+        ImageIO.write(RasterKernelsTest.randomImage(512, 512, BufferedImage.TYPE_3BYTE_BGR, 2), "png",
+                dir.resolve("in.png").toFile());
+        String manifest = String.join("\n",
+                "{\"input\": \"in.png\", \"ops\": [\"blur:3\"], \"output\": \"a.png\"}",
+                "{\"input\": \"in.png\", \"output\": \"b.png\"}",
+                "{\"input\": \"in.png\", \"output\": \"c.png\"}");
+        StringWriter log = new StringWriter();
+        ForkJoinPool pool = new ForkJoinPool(2) {
+            @Override
+            public <T> T invoke(ForkJoinTask<T> task) {
+                throw new OutOfMemoryError("Java heap space");
+            }
+        };
+
+        try {
+            ManifestRunner runner = new ManifestRunner(1, false, pool, null, null, null);
+            assertThrows(OutOfMemoryError.class,
+                    () -> runner.run(new BufferedReader(new StringReader(manifest)), dir, log));
+        } finally {
+            pool.shutdown();
+        }
+
+        String[] lines = log.toString().split("\n");
+        assertEquals(3, lines.length);
+        for (String line : lines) {
+            Map<String, Object> result = Json.parseObject(line);
+            assertEquals("error", result.get("status"), line);
+            assertEquals(result.get("line").equals(1.0) ? "java.lang.OutOfMemoryError: Java heap space"
+                    : "Not run after an earlier error", result.get("error"), line);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(dir.resolve("in.png")), files.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Only a bounded number of lines is read ahead of the finished jobs")
+    void testReadsIncrementally() throws IOException, InterruptedException {
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("in.png").toFile());
+        int jobs = 300;
+        int workers = 2;
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        Reader lines = new Reader() {
+            private int produced;
+            private String pending = "";
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (pending.isEmpty()) {
+                    if (produced == jobs) {
+                        return -1;
+                    }
+                    produced++;
+                    maxAhead.accumulateAndGet(produced - finished.get(), Math::max);
+                    pending = "{\"input\": \"in.png\", \"output\": \"out/" + produced + ".png\"}\n";
+                }
+                int count = Math.min(length, pending.length());
+                pending.getChars(0, count, buffer, offset);
+                pending = pending.substring(count);
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        StringWriter log = new StringWriter() {
+            @Override
+            public void flush() {
+                finished.incrementAndGet();
+            }
+        };
+
+        int failures = new ManifestRunner(workers, false, null, null, null, null).run(
+                new BufferedReader(lines, 64), dir, log);
+
+        assertEquals(0, failures);
+        assertEquals(jobs, finished.get());
+        try (Stream<Path> outputs = Files.list(dir.resolve("out"))) {
+            assertEquals(jobs, outputs.count());
+        }
+        // Lines held: those queued or running, the one waiting for a slot, and a partial buffer.
+        assertTrue(maxAhead.get() <= workers * 2 + 3, "read ahead " + maxAhead.get());
+    }
+
+    @Test
+    @DisplayName("Repeated jobs are served from the result cache with identical output")
+    void testCache() throws IOException, InterruptedException {
+        BufferedImage image = RasterKernelsTest.randomImage(30, 20, BufferedImage.TYPE_3BYTE_BGR, 6);
+        ImageIO.write(image, "png", dir.resolve("a.png").toFile());
+        Files.copy(dir.resolve("a.png"), dir.resolve("copy-of-a.png"));
+        String manifest = String.join("\n",
+                "{\"input\": \"a.png\", \"ops\": [\"blur:4\", \"invert\"], \"output\": \"1.png\"}",
+                "{\"input\": \"copy-of-a.png\", \"ops\": [\"BLUR:04\", \"invert\"], \"output\": \"2.png\"}",
+                "{\"input\": \"a.png\", \"ops\": [\"invert\", \"blur:4\"], \"output\": \"3.png\"}",
+                "{\"input\": \"a.png\", \"ops\": [\"blur:4\", \"invert\"], \"output\": \"4.bmp\"}");
+        ResultCache cache = new ResultCache(1 << 20);
+        StringWriter log = new StringWriter();
+
+        int failures = new ManifestRunner(1, false, null, cache, null, null).run(
+                new BufferedReader(new StringReader(manifest)), dir, log);
+
+        assertEquals(0, failures);
+        List<Object> cached = new ArrayList<>();
+        for (String line : log.toString().split("\n")) {
+            cached.add(Json.parseObject(line).get("cached"));
+        }
+        assertEquals(Arrays.asList(null, true, null, null), cached);
+        assertEquals(1, cache.stats().hits);
+        assertEquals(3, cache.stats().misses);
+        assertArrayEquals(Files.readAllBytes(dir.resolve("1.png")), Files.readAllBytes(dir.resolve("2.png")));
+        BufferedImage expected = new Pipeline(List.of("blur:4", "invert")).apply(image, null);
+        RasterKernelsTest.assertSamePixels(expected, ImageIO.read(dir.resolve("1.png").toFile()));
+        RasterKernelsTest.assertSamePixels(expected, ImageIO.read(dir.resolve("4.bmp").toFile()));
+    }
+
+    @Test
+    @DisplayName("Command line manifest mode writes the result log")
+    void testCommandLine() throws IOException {
+        ImageIO.write(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("in.png").toFile());
+        Files.writeString(dir.resolve("jobs.jsonl"),
+                "{\"input\": \"in.png\", \"ops\": [\"blur:2\"], \"output\": \"o.png\"}\n");
+        Path log = dir.resolve("log.jsonl");
+
+        assertEquals(0, ImageEditor.run(new String[] {
+            "--manifest", dir.resolve("jobs.jsonl").toString(), "--log", log.toString(), "--jobs", "2"
+        }));
+        assertEquals("ok", Json.parseObject(Files.readAllLines(log).get(0)).get("status"));
+        assertTrue(Files.exists(dir.resolve("o.png")));
+        assertEquals(1, ImageEditor.run(new String[] {"--manifest", dir.resolve("none.jsonl").toString()}));
+        assertEquals(1, ImageEditor.run(new String[] {
+            "--manifest", dir.resolve("jobs.jsonl").toString(), "--op", "invert"
+        }));
+    }
+}
@@ -0,0 +1,95 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for operation parsing and the decode-once pipeline.
+ */
+class PipelineTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Specs parse to operations and print back unchanged")
+    void testParse() {
+        Pipeline pipeline = new Pipeline(List.of("rotate-right", "GRAYSCALE", "brightness:-20", "blur:8"));
+
+        assertEquals("[rotate-right, grayscale, brightness:-20, blur:8]", pipeline.operations().toString());
+        assertEquals(Operation.Kind.BRIGHTNESS, pipeline.operations().get(2).kind);
+        assertEquals(-20, pipeline.operations().get(2).argument);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "sharpen", "blur", "blur:0", "blur:x", "grayscale:2", "brightness:", "crop", "crop:1,2,3", "crop:0,0,0,5",
+        "crop:-1,0,5,5"
+    })
+    @DisplayName("Invalid specs are rejected")
+    void testInvalidSpec(String spec) {
+        assertThrows(IllegalArgumentException.class, () -> Operation.parse(spec));
+    }
+
+    @Test
+    @DisplayName("Chained operations match applying them one by one")
+    void testMatchesSingleOperations() {
+        BufferedImage image = RasterKernelsTest.randomImage(37, 23, BufferedImage.TYPE_3BYTE_BGR, 5);
+        BufferedImage expected = ImageEditor.applyBlur(
+                ImageEditor.flipHorizontal(ImageEditor.convertToGrayscale(ImageEditor.rotateRight(image))), 4);
+
+        BufferedImage actual = new Pipeline(List.of("rotate-right", "grayscale", "flip-horizontal", "blur:4"))
+                .apply(image, null);
+
+        RasterKernelsTest.assertSamePixels(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Command line pipeline decodes once and writes the format of --out")
+    void testCommandLine() throws IOException {
+        File input = dir.resolve("in.png").toFile();
+        File output = dir.resolve("out.png").toFile();
+        BufferedImage image = RasterKernelsTest.randomImage(30, 20, BufferedImage.TYPE_3BYTE_BGR, 9);
+        ImageIO.write(image, "png", input);
+
+        int status = ImageEditor.run(new String[] {
+            "--in", input.getPath(), "--op", "rotate-left", "--op", "brightness:30", "--out", output.getPath()
+        });
+
+        assertEquals(0, status);
+        BufferedImage written = ImageIO.read(output);
+        BufferedImage expected = ImageEditor.adjustBrightness(ImageEditor.rotateLeft(image), 30);
+        assertEquals(20, written.getWidth());
+        assertEquals(30, written.getHeight());
+        for (int y = 0; y < written.getHeight(); y++) {
+            for (int x = 0; x < written.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), written.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Command line errors return a non-zero status")
+    void testCommandLineErrors() throws IOException {
+        File input = dir.resolve("in.png").toFile();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", input);
+
+        assertEquals(1, ImageEditor.run(new String[] {"--op", "grayscale"}));
+        assertEquals(1, ImageEditor.run(new String[] {"--in", dir.resolve("missing.png").toString()}));
+        assertEquals(1, ImageEditor.run(new String[] {"--in", input.getPath(), "--op", "sharpen"}));
+        String unsupported = dir.resolve("out.xyz").toString();
+        assertEquals(1, ImageEditor.run(new String[] {"--in", input.getPath(), "--out", unsupported}));
+    }
+}
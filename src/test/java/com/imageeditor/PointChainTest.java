@@ -0,0 +1,118 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that fused point operations match running the operations one at a time.
+ */
+class PointChainTest {
+
+    private static final String[] POINT_SPECS = {
+        "grayscale", "brightness:35", "brightness:-60", "contrast:50", "contrast:-40", "gamma:2.2", "gamma:0.5",
+        "invert"
+    };
+
+    private static BufferedImage oneByOne(BufferedImage image, List<String> specs) {
+        BufferedImage current = image;
+        for (String spec : specs) {
+            current = Operation.parse(spec).apply(current, null);
+        }
+        return current;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY
+    })
+    @DisplayName("Random point chains are bit-identical to unfused execution")
+    void testRandomChains(int type) {
+        BufferedImage image = RasterKernelsTest.randomImage(53, 31, type, type);
+        Random random = new Random(type);
+        for (int n = 0; n < 60; n++) {
+            List<String> specs = new ArrayList<>();
+            for (int i = 0, length = 2 + random.nextInt(4); i < length; i++) {
+                specs.add(POINT_SPECS[random.nextInt(POINT_SPECS.length)]);
+            }
+            Pipeline pipeline = new Pipeline(specs);
+
+            assertEquals(1, pipeline.stages().size(), specs.toString());
+            RasterKernelsTest.assertSamePixels(oneByOne(image, specs), pipeline.apply(image, null));
+        }
+    }
+
+    @Test
+    @DisplayName("Chains through grayscale keep the output type of the last operation")
+    void testOutputType() {
+        BufferedImage image = RasterKernelsTest.randomImage(8, 8, BufferedImage.TYPE_INT_RGB, 3);
+
+        BufferedImage gray = new Pipeline(List.of("invert", "grayscale")).apply(image, null);
+        BufferedImage color = new Pipeline(List.of("grayscale", "invert")).apply(image, null);
+
+        assertEquals(BufferedImage.TYPE_BYTE_GRAY, gray.getType());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, color.getType());
+    }
+
+    @Test
+    @DisplayName("Single channel operations apply their formula to every channel")
+    void testChannelFormulas() {
+        BufferedImage image = RasterKernelsTest.randomImage(16, 16, BufferedImage.TYPE_INT_RGB, 4);
+        BufferedImage inverted = Operation.parse("invert").apply(image, null);
+        BufferedImage contrast = Operation.parse("contrast:50").apply(image, null);
+        BufferedImage gamma = Operation.parse("gamma:2").apply(image, null);
+
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                int rgb = image.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int c = (rgb >> shift) & 0xFF;
+                    assertEquals(255 - c, (inverted.getRGB(x, y) >> shift) & 0xFF);
+                    assertEquals(Math.min(255, Math.max(0, 128 + (c - 128) * 150 / 100)),
+                            (contrast.getRGB(x, y) >> shift) & 0xFF);
+                    assertEquals(Math.round(255 * Math.sqrt(c / 255.0)), (gamma.getRGB(x, y) >> shift) & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Contrast saturates instead of overflowing for extreme arguments")
+    void testExtremeContrast() {
+        for (int argument : new int[] {16_800_000, Integer.MAX_VALUE - 50, Integer.MAX_VALUE}) {
+            byte[] table = Operation.parse("contrast:" + argument).channelTable();
+            for (int c = 0; c < 256; c++) {
+                assertEquals(c < 128 ? 0 : c == 128 ? 128 : 255, table[c] & 0xFF, argument + " at " + c);
+            }
+        }
+        byte[] table = Operation.parse("contrast:" + Integer.MIN_VALUE).channelTable();
+        for (int c = 0; c < 256; c++) {
+            assertEquals(c < 128 ? 255 : c == 128 ? 128 : 0, table[c] & 0xFF, "minimum at " + c);
+        }
+    }
+
+    @Test
+    @DisplayName("Only consecutive point operations are fused")
+    void testStages() {
+        Pipeline pipeline = new Pipeline(List.of("brightness:10", "grayscale", "rotate-left", "invert", "blur:3",
+                "gamma:1.8", "contrast:20"));
+
+        List<Pipeline.Stage> stages = pipeline.stages();
+        assertEquals(5, stages.size());
+        assertInstanceOf(PointChain.class, stages.get(0));
+        assertInstanceOf(Operation.class, stages.get(2));
+        assertInstanceOf(PointChain.class, stages.get(4));
+        assertEquals("[gamma:1.8, contrast:20]", stages.get(4).toString());
+    }
+}
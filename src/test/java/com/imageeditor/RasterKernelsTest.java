@@ -0,0 +1,125 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pixel-exact equivalence tests between the raster kernels and the original getRGB/setRGB loops.
+ */
+class RasterKernelsTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    static BufferedImage randomImage(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    static BufferedImage copy(BufferedImage image) {
+        return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+    }
+
+    static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        for (int y = 0; y < height; y++) {
+            assertArrayEquals(
+                    expected.getRaster().getPixels(0, y, width, 1, (int[]) null),
+                    actual.getRaster().getPixels(0, y, width, 1, (int[]) null),
+                    "row " + y);
+        }
+    }
+
+    /** Compares colours only, for results whose type may differ from the expected image's. */
+    static void assertSameRgb(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getWidth(), actual.getWidth(), message);
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y) & 0xFFFFFF, actual.getRGB(x, y) & 0xFFFFFF, message);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_4BYTE_ABGR,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Every operation matches the per-pixel implementation")
+    void testEquivalence(int type) {
+        BufferedImage image = randomImage(WIDTH, HEIGHT, type, type);
+
+        assertSamePixels(LegacyImageEditor.convertToGrayscale(image), ImageEditor.convertToGrayscale(image));
+        for (int percentage : new int[] {-100, -37, 0, 25, 50, 500}) {
+            assertSamePixels(LegacyImageEditor.adjustBrightness(image, percentage),
+                    ImageEditor.adjustBrightness(image, percentage));
+        }
+        assertSamePixels(LegacyImageEditor.rotateRight(image), ImageEditor.rotateRight(image));
+        assertSamePixels(LegacyImageEditor.rotateLeft(image), ImageEditor.rotateLeft(image));
+        assertSamePixels(LegacyImageEditor.rotateRight(LegacyImageEditor.rotateRight(image)),
+                ImageEditor.rotate180(image));
+        assertSamePixels(LegacyImageEditor.flipHorizontal(image), ImageEditor.flipHorizontal(image));
+        assertSamePixels(LegacyImageEditor.flipVertical(image), ImageEditor.flipVertical(image));
+        assertSamePixels(LegacyImageEditor.applyBlur(image, 1), ImageEditor.applyBlur(image, 1));
+    }
+
+    @Test
+    @DisplayName("Sub-images are read from the right offset of the shared raster")
+    void testSubimageEquivalence() {
+        for (int type : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage image = randomImage(WIDTH, HEIGHT, type, 7).getSubimage(3, 5, 20, 11);
+
+            assertSamePixels(LegacyImageEditor.convertToGrayscale(image), ImageEditor.convertToGrayscale(image));
+            assertSamePixels(LegacyImageEditor.adjustBrightness(image, 30), ImageEditor.adjustBrightness(image, 30));
+            assertSamePixels(LegacyImageEditor.rotateRight(image), ImageEditor.rotateRight(image));
+            assertSamePixels(LegacyImageEditor.flipHorizontal(image), ImageEditor.flipHorizontal(image));
+        }
+    }
+
+    @Test
+    @DisplayName("Rotations cover partial tiles on both axes")
+    void testRotationAcrossTiles() {
+        int width = RotationKernel.TILE * 3 + 5;
+        int height = RotationKernel.TILE * 2 + 17;
+        BufferedImage image = randomImage(width, height, BufferedImage.TYPE_3BYTE_BGR, 13);
+
+        assertSamePixels(LegacyImageEditor.rotateRight(image), ImageEditor.rotateRight(image));
+        assertSamePixels(LegacyImageEditor.rotateLeft(image), ImageEditor.rotateLeft(image));
+    }
+
+    @Test
+    @DisplayName("Raster luma matches the gray ColorModel for every channel value")
+    void testLumaMatchesColorModel() {
+        BufferedImage gray = new BufferedImage(256, 3, BufferedImage.TYPE_BYTE_GRAY);
+        for (int v = 0; v < 256; v++) {
+            int[] probes = {v << 16, v << 8, v};
+            for (int i = 0; i < probes.length; i++) {
+                gray.setRGB(v, i, probes[i]);
+                assertEquals(gray.getRaster().getSample(v, i, 0), RasterKernels.luma(probes[i]));
+            }
+        }
+    }
+}
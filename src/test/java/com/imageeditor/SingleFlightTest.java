@@ -0,0 +1,102 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for request coalescing.
+ */
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Concurrent calls with the same key share one computation, and the key is forgotten after it")
+    void testCoalescing() throws Exception {
+        SingleFlight<String, byte[]> flights = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<byte[]>> calls = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                calls.add(executor.submit(() -> flights.run("a", () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return new byte[] {1, 2, 3};
+                })));
+            }
+            while (flights.coalesced() < 4) {
+                Thread.yield();
+            }
+            assertArrayEquals(new byte[] {9}, flights.run("b", () -> new byte[] {9}));
+            release.countDown();
+
+            byte[] first = calls.get(0).get();
+            for (Future<byte[]> call : calls) {
+                assertSame(first, call.get());
+            }
+            assertEquals(1, computations.get());
+            assertEquals(4, flights.coalesced());
+
+            flights.run("a", () -> {
+                computations.incrementAndGet();
+                return first;
+            });
+            assertEquals(2, computations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("A failure reaches every waiter and the next call computes again")
+    void testFailure() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> calls = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                calls.add(executor.submit(() -> flights.run("k", () -> {
+                    await(release);
+                    throw new IOException("Could not read image file - x");
+                })));
+            }
+            while (flights.coalesced() < 2) {
+                Thread.yield();
+            }
+            release.countDown();
+
+            for (Future<String> call : calls) {
+                ExecutionException e = assertThrows(ExecutionException.class, call::get);
+                assertInstanceOf(IOException.class, e.getCause());
+                assertEquals("Could not read image file - x", e.getCause().getMessage());
+            }
+            assertEquals("ok", flights.run("k", () -> "ok"));
+            assertThrows(IllegalArgumentException.class, () -> flights.run("k", () -> {
+                throw new IllegalArgumentException("Unknown operation");
+            }));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that strip-by-strip processing writes the same pixels as the in-memory pipeline.
+ */
+class StreamingPipelineTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @CsvSource({
+        "png, grayscale",
+        "png, brightness:35;flip-horizontal;blur:5",
+        "png, invert;blur:3;gamma:1.8;blur:4",
+        "bmp, contrast:40;flip-horizontal",
+        "tif, blur:7;grayscale",
+        "png, ''"
+    })
+    @DisplayName("Streamed output matches the in-memory pipeline across many strips")
+    void testMatchesInMemory(String format, String specs) throws IOException {
+        List<String> operations = specs.isEmpty() ? List.of() : Arrays.asList(specs.split(";"));
+        BufferedImage image = RasterKernelsTest.randomImage(53, 97, BufferedImage.TYPE_3BYTE_BGR, 17);
+        File input = dir.resolve("in.png").toFile();
+        File output = dir.resolve("out." + format).toFile();
+        ImageIO.write(image, "png", input);
+
+        Pipeline pipeline = new Pipeline(operations);
+        StreamingPipeline streaming = new StreamingPipeline(pipeline, 53 * 4);
+        streaming.run(input, output, null);
+
+        assertTrue(streaming.stripRows(53) < 97);
+        BufferedImage expected = pipeline.apply(ImageIO.read(input), null);
+        BufferedImage written = ImageIO.read(output);
+        assertEquals(expected.getWidth(), written.getWidth());
+        assertEquals(expected.getHeight(), written.getHeight());
+        for (int y = 0; y < written.getHeight(); y++) {
+            for (int x = 0; x < written.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), written.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Strips hold a multiple of every blur block size")
+    void testStripRowsAlignWithBlur() {
+        StreamingPipeline streaming = new StreamingPipeline(new Pipeline(List.of("blur:4", "blur:6")), 1000);
+
+        assertEquals(12, streaming.stripRows(1000));
+        assertEquals(12, streaming.stripRows(100));
+        assertEquals(84, streaming.stripRows(13));
+    }
+
+    @Test
+    @DisplayName("Alpha is dropped for formats that cannot store it")
+    void testAlphaToOpaqueFormat() throws IOException {
+        BufferedImage image = RasterKernelsTest.randomImage(20, 30, BufferedImage.TYPE_INT_ARGB, 3);
+        File input = dir.resolve("in.png").toFile();
+        File output = dir.resolve("out.bmp").toFile();
+        ImageIO.write(image, "png", input);
+
+        new StreamingPipeline(new Pipeline(List.of("flip-horizontal")), 100).run(input, output, null);
+
+        BufferedImage written = ImageIO.read(output);
+        RasterKernelsTest.assertSameRgb(ImageEditor.flipHorizontal(image), written, "flip-horizontal");
+    }
+
+    @Test
+    @DisplayName("Operations that need other rows and non-streaming formats are rejected")
+    void testRejected() throws IOException {
+        File input = dir.resolve("in.png").toFile();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", input);
+
+        for (String spec : List.of("rotate-right", "flip-vertical", "rotate-180", "auto-orient", "crop:0,0,2,2")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new StreamingPipeline(new Pipeline(List.of(spec))), spec);
+        }
+        StreamingPipeline streaming = new StreamingPipeline(new Pipeline(List.of("grayscale")));
+        assertThrows(IllegalArgumentException.class,
+                () -> streaming.run(input, dir.resolve("out.jpg").toFile(), null));
+        assertEquals(1, ImageEditor.run(new String[] {
+            "--in", input.getPath(), "--stream", "--op", "rotate-left", "--out", dir.resolve("o.png").toString()
+        }));
+        assertEquals(0, ImageEditor.run(new String[] {
+            "--in", input.getPath(), "--stream", "--op", "invert", "--out", dir.resolve("o.png").toString()
+        }));
+    }
+}
@@ -0,0 +1,114 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the reduced-resolution decode path.
+ */
+class SubsamplingTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "blur:8 | 4",
+        "blur:12 | 6",
+        "blur:7 | 1",
+        "blur:4 | 2",
+        "blur:3 | 1",
+        "grayscale;gamma:2;blur:10 | 5",
+        "blur:9;rotate-right | 3",
+        "rotate-right;blur:8 | 1",
+        "crop:0,0,8,8;blur:8 | 1",
+        "invert | 1"
+    })
+    @DisplayName("The factor is a divisor of the first blur that keeps two samples per block edge")
+    void testFactor(String specs, int expected) {
+        assertEquals(expected, Subsampling.factor(new Pipeline(Arrays.asList(specs.split(";"))).operations()));
+    }
+
+    @Test
+    @DisplayName("Expanding repeats every pixel and clips to the requested size")
+    void testExpand() {
+        BufferedImage image = RasterKernelsTest.randomImage(7, 5, BufferedImage.TYPE_INT_RGB, 2);
+
+        BufferedImage expanded = Subsampling.expand(image, 3, 20, 14, null);
+
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, expanded.getType());
+        for (int y = 0; y < 14; y++) {
+            for (int x = 0; x < 20; x++) {
+                assertEquals(image.getRGB(x / 3, y / 3), expanded.getRGB(x, y));
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "blur:8",
+        "brightness:20;blur:8;flip-vertical",
+        "contrast:30;invert;blur:12;rotate-left;grayscale"
+    })
+    @DisplayName("Draft decoding is exact when every block is one colour")
+    void testDraftMatchesFullDecode(String specs) throws IOException {
+        BufferedImage image = blockImage(61, 45, 24);
+        File input = dir.resolve("in.png").toFile();
+        File full = dir.resolve("full.png").toFile();
+        File draft = dir.resolve("draft.png").toFile();
+        ImageIO.write(image, "png", input);
+        Pipeline pipeline = new Pipeline(Arrays.asList(specs.split(";")));
+
+        pipeline.run(input, full, null);
+        pipeline.run(input, draft, true, null);
+
+        RasterKernelsTest.assertSamePixels(ImageIO.read(full), ImageIO.read(draft));
+    }
+
+    @Test
+    @DisplayName("Draft mode is rejected together with streaming")
+    void testDraftWithStream() throws IOException {
+        File input = dir.resolve("in.png").toFile();
+        ImageIO.write(blockImage(8, 8, 8), "png", input);
+
+        assertEquals(1, ImageEditor.run(new String[] {
+            "--in", input.getPath(), "--draft", "--stream", "--op", "blur:4", "--out", dir.resolve("o.png").toString()
+        }));
+        assertEquals(0, ImageEditor.run(new String[] {
+            "--in", input.getPath(), "--draft", "--op", "blur:4", "--out", dir.resolve("o.png").toString()
+        }));
+        BufferedImage written = ImageIO.read(dir.resolve("o.png").toFile());
+        assertEquals(8, written.getWidth());
+        assertEquals(8, written.getHeight());
+    }
+
+    /** An image of random colours, constant over each blockSize x blockSize cell. */
+    private static BufferedImage blockImage(int width, int height, int blockSize) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Random random = new Random(blockSize);
+        for (int y0 = 0; y0 < height; y0 += blockSize) {
+            for (int x0 = 0; x0 < width; x0 += blockSize) {
+                int rgb = random.nextInt(0x1000000);
+                for (int y = y0; y < Math.min(y0 + blockSize, height); y++) {
+                    for (int x = x0; x < Math.min(x0 + blockSize, width); x++) {
+                        image.setRGB(x, y, rgb);
+                    }
+                }
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,103 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the summed-area-table blur.
+ */
+class SummedAreaBlurTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    /** Averages a block the slow way, straight from getRGB. */
+    private static int naiveAverage(BufferedImage image, int x0, int y0, int x1, int y1) {
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                int rgb = image.getRGB(x, y);
+                red += (rgb >> 16) & 0xFF;
+                green += (rgb >> 8) & 0xFF;
+                blue += rgb & 0xFF;
+            }
+        }
+        long area = (long) (x1 - x0) * (y1 - y0);
+        return (int) (red / area) << 16 | (int) (green / area) << 8 | (int) (blue / area);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+        BufferedImage.TYPE_3BYTE_BGR,
+        BufferedImage.TYPE_INT_RGB,
+        BufferedImage.TYPE_INT_ARGB,
+        BufferedImage.TYPE_BYTE_GRAY,
+        BufferedImage.TYPE_USHORT_565_RGB
+    })
+    @DisplayName("Full blocks match the per-pixel implementation")
+    void testFullBlocksMatchLegacy(int type) {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, type, type);
+        for (int blockSize : new int[] {2, 4, 5, 7}) {
+            BufferedImage expected = LegacyImageEditor.applyBlur(image, blockSize);
+            BufferedImage actual = ImageEditor.applyBlur(image, blockSize);
+            int fullWidth = WIDTH / blockSize * blockSize;
+            int fullHeight = HEIGHT / blockSize * blockSize;
+            for (int y = 0; y < fullHeight; y++) {
+                for (int x = 0; x < fullWidth; x++) {
+                    assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Partial edge blocks are averaged over the pixels they cover")
+    void testEdgeBlocksAveraged() {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB, 3);
+        int blockSize = 5;
+        BufferedImage result = ImageEditor.applyBlur(image, blockSize);
+
+        for (int y0 = 0; y0 < HEIGHT; y0 += blockSize) {
+            for (int x0 = 0; x0 < WIDTH; x0 += blockSize) {
+                int x1 = Math.min(x0 + blockSize, WIDTH);
+                int y1 = Math.min(y0 + blockSize, HEIGHT);
+                int expected = naiveAverage(image, x0, y0, x1, y1);
+                for (int y = y0; y < y1; y++) {
+                    for (int x = x0; x < x1; x++) {
+                        assertEquals(expected, result.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Block larger than the image averages the whole image")
+    void testBlockLargerThanImage() {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR, 5);
+        BufferedImage result = ImageEditor.applyBlur(image, 200);
+        int expected = naiveAverage(image, 0, 0, WIDTH, HEIGHT);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected, result.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Non-positive block size is rejected")
+    void testInvalidBlockSize() {
+        BufferedImage image = RasterKernelsTest.randomImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR, 5);
+
+        assertThrows(IllegalArgumentException.class, () -> ImageEditor.applyBlur(image, 0));
+    }
+}
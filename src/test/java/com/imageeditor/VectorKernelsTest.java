@@ -0,0 +1,55 @@
+package com.imageeditor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the SIMD backend is bit-identical to the scalar kernels.
+ */
+class VectorKernelsTest {
+
+    private boolean wasEnabled;
+
+    @BeforeEach
+    void requireVectorModule() {
+        assumeTrue(SimdSupport.isAvailable(), "jdk.incubator.vector is not resolved");
+        wasEnabled = SimdSupport.isEnabled();
+    }
+
+    @AfterEach
+    void restore() {
+        SimdSupport.setEnabled(wasEnabled);
+    }
+
+    private static BufferedImage[] bothBackends(BufferedImage image, UnaryOperator<BufferedImage> op) {
+        SimdSupport.setEnabled(false);
+        BufferedImage scalar = op.apply(image);
+        SimdSupport.setEnabled(true);
+        BufferedImage vector = op.apply(image);
+        return new BufferedImage[] {scalar, vector};
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 16, 33, 257})
+    @DisplayName("SIMD brightness matches the scalar table, including row tails and extreme percentages")
+    void testMatchesScalar(int width) {
+        for (int type : new int[] {BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_BYTE_GRAY}) {
+            BufferedImage image = RasterKernelsTest.randomImage(width, 19, type, width + type);
+
+            for (int percentage : new int[] {-100, -37, 0, 45, 500, 100_000, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+                BufferedImage[] bright = bothBackends(image, i -> ImageEditor.adjustBrightness(i, percentage));
+                RasterKernelsTest.assertSamePixels(bright[0], bright[1]);
+            }
+        }
+    }
+}